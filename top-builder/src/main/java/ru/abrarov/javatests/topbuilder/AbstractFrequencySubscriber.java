@@ -0,0 +1,138 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Base of subscribers counting values in {@link StringCountTable} as they arrive and publishing snapshots of the top
+ * list. Demand is requested in portions of the configured size and replenished when half of the portion is received,
+ * so the publisher never pushes more than the portion ahead of counting. Counting of a value allocates nothing except
+ * for growth of the table.
+ * <p>
+ * Snapshot is published when the configured number of values is counted since the previous snapshot or when the
+ * configured time has passed (approximately, the time is checked every {@link #TIME_CHECK_INTERVAL} values, so there is
+ * no timer thread), and when the subscription completes. Intermediate snapshots are dropped for the snapshot
+ * subscribers which lag behind, the final snapshot is delivered to all of them before the snapshot publisher is
+ * closed: {@link #onComplete()} blocks the thread of the publisher until the buffers of all snapshot subscribers have
+ * room for it, so a slow snapshot subscriber delays completion. Failure of the subscription closes the snapshot
+ * publisher exceptionally.
+ *
+ * @param <T> Type of subscribed items.
+ */
+abstract class AbstractFrequencySubscriber<T> implements Flow.Subscriber<T> {
+
+  private static final int TIME_CHECK_INTERVAL = 64;
+
+  private final StringCountTable table = new StringCountTable();
+  private final SubmissionPublisher<List<FrequencyAnalyzer.Item>> snapshots;
+  private final int topListSize;
+  private final int requestSize;
+  private final int snapshotValueInterval;
+  private final long snapshotIntervalNanos;
+  private Flow.Subscription subscription;
+  private int pendingItems;
+  private int valuesSinceSnapshot;
+  private int valuesSinceTimeCheck;
+  private long lastSnapshotTime;
+
+  /**
+   * Creates subscriber.
+   *
+   * @param topListSize           The maximum size of snapshots of the top list. Must be >= 0.
+   * @param requestSize           Number of items requested from the publisher at once. Must be > 0.
+   * @param snapshotValueInterval Number of counted values after which snapshot is published. Must be >= 0, 0 disables
+   *                              publishing by the number of values.
+   * @param snapshotIntervalNanos Time after which snapshot is published in nanoseconds. Must be >= 0, 0 disables
+   *                              publishing by time.
+   * @param snapshotExecutor      Executor delivering snapshots to their subscribers.
+   */
+  AbstractFrequencySubscriber(int topListSize, int requestSize, int snapshotValueInterval, long snapshotIntervalNanos,
+                              Executor snapshotExecutor) {
+    assert topListSize >= 0 : "Size of the list must be >= 0";
+    assert requestSize > 0 : "requestSize must be > 0";
+    assert snapshotValueInterval >= 0 : "snapshotValueInterval must be >= 0";
+    assert snapshotIntervalNanos >= 0 : "snapshotIntervalNanos must be >= 0";
+
+    this.topListSize = topListSize;
+    this.requestSize = requestSize;
+    this.snapshotValueInterval = snapshotValueInterval;
+    this.snapshotIntervalNanos = snapshotIntervalNanos;
+    this.snapshots = new SubmissionPublisher<List<FrequencyAnalyzer.Item>>(snapshotExecutor,
+        Flow.defaultBufferSize());
+  }
+
+  /**
+   * Gets publisher of snapshots of the top list. Each snapshot is the list of the most frequent values counted so
+   * far.
+   *
+   * @return Publisher of snapshots.
+   */
+  public Flow.Publisher<List<FrequencyAnalyzer.Item>> snapshots() {
+    return snapshots;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (this.subscription != null) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    lastSnapshotTime = System.nanoTime();
+    pendingItems = requestSize;
+    subscription.request(requestSize);
+  }
+
+  @Override
+  public void onNext(T item) {
+    if (--pendingItems <= requestSize / 2) {
+      subscription.request(requestSize - pendingItems);
+      pendingItems = requestSize;
+    }
+    final int count = count(table, item);
+    if (snapshotValueInterval > 0) {
+      valuesSinceSnapshot += count;
+      if (valuesSinceSnapshot >= snapshotValueInterval) {
+        publishSnapshot();
+        return;
+      }
+    }
+    if (snapshotIntervalNanos > 0) {
+      valuesSinceTimeCheck += count;
+      if (valuesSinceTimeCheck >= TIME_CHECK_INTERVAL) {
+        valuesSinceTimeCheck = 0;
+        if (System.nanoTime() - lastSnapshotTime >= snapshotIntervalNanos) {
+          publishSnapshot();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    snapshots.closeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    snapshots.submit(table.top(topListSize));
+    snapshots.close();
+  }
+
+  /**
+   * Counts values of the subscribed item.
+   *
+   * @param table Table of counts.
+   * @param item  Subscribed item.
+   * @return Number of counted values.
+   */
+  abstract int count(StringCountTable table, T item);
+
+  private void publishSnapshot() {
+    valuesSinceSnapshot = 0;
+    lastSnapshotTime = System.nanoTime();
+    snapshots.offer(table.top(topListSize), null);
+  }
+}
@@ -0,0 +1,115 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of the FrequencyAnalyzer which counts the first values (the sample) the same way as {@link
+ * NaiveFrequencyAnalyzer}, builds {@link InputProfile} of the sample and delegates analysis of the rest of values to
+ * the implementation selected by {@link SelectionPolicy}. The selection is logged with its reason.
+ * <p>
+ * The sample isn't buffered and isn't counted twice: the built-in implementations continue counting in the map of the
+ * sample or move its counts to their own structures. The map is usually compiled by JIT already, so the sample doesn't
+ * make JIT compile the code of the implementations which aren't selected. Other implementations get the values of the
+ * sample repeated by their frequencies, i.e. not in the original order, followed by the rest of values.
+ * <p>
+ * The selection of the last analysis is available via {@link #lastSelection()}. If the instance is shared by threads
+ * then the selection is of the last started analysis.
+ *
+ * @see FrequencyAnalyzers#auto
+ */
+public class AdaptiveFrequencyAnalyzer implements FrequencyAnalyzer {
+
+  private static final Logger LOGGER = Logger.getLogger(AdaptiveFrequencyAnalyzer.class.getName());
+
+  private final SelectionPolicy policy;
+  private final int sampleSize;
+  private volatile SelectionPolicy.Selection lastSelection;
+
+  /**
+   * Creates analyzer.
+   *
+   * @param policy     Decision model selecting implementation.
+   * @param sampleSize Number of the first values used to build profile. Must be > 0.
+   */
+  public AdaptiveFrequencyAnalyzer(SelectionPolicy policy, int sampleSize) {
+    assert sampleSize > 0 : "sampleSize must be > 0";
+
+    this.policy = policy;
+    this.sampleSize = sampleSize;
+  }
+
+  @Override
+  public List<Item> buildTopFrequentList(final Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    final Map<String, Item> sample = new HashMap<String, Item>();
+    final int sharedRepeatCount = NaiveFrequencyAnalyzer.countHead(sample, values, sampleSize);
+    final InputProfile profile = InputProfile.of(sample.values(), sharedRepeatCount, !values.hasNext());
+    final SelectionPolicy.Selection selection = policy.select(profile);
+    lastSelection = selection;
+    if (LOGGER.isLoggable(Level.INFO)) {
+      LOGGER.info(String.format("Selected %s because %s. Profile: %s", selection.engine(), selection.reason(),
+          profile));
+    }
+    final FrequencyAnalyzer analyzer = selection.analyzer();
+    if (analyzer instanceof SplitInputFrequencyAnalyzer) {
+      return ((SplitInputFrequencyAnalyzer) analyzer).buildTopFrequentList(sample, values, size);
+    }
+    // The order of the sample isn't kept: it's counted in the map, see SelectionPolicy#select
+    final List<String> sampleValues = new ArrayList<String>(profile.sampleSize());
+    for (Item item : sample.values()) {
+      for (int i = 0; i < item.frequency(); ++i) {
+        sampleValues.add(item.value());
+      }
+    }
+    return analyzer.buildTopFrequentList(concat(sampleValues.iterator(), values), size);
+  }
+
+  /**
+   * Gets the selection of the last call of {@link #buildTopFrequentList}.
+   *
+   * @return Selection of the last analysis or null if there was no analysis.
+   */
+  public SelectionPolicy.Selection lastSelection() {
+    return lastSelection;
+  }
+
+  private static Iterator<String> concat(final Iterator<String> first, final Iterator<String> second) {
+    return new Iterator<String>() {
+
+      private Iterator<String> current = first;
+
+      @Override
+      public boolean hasNext() {
+        if (current.hasNext()) {
+          return true;
+        }
+        current = second;
+        return second.hasNext();
+      }
+
+      @Override
+      public String next() {
+        if (current == first && !first.hasNext()) {
+          current = second;
+        }
+        return current.next();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,23 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Top list item which frequency is known within bounds. {@link #frequency()} returns the lower bound.
+ *
+ * @see BoundedTopList
+ */
+public interface ApproximateItem extends FrequencyAnalyzer.Item {
+
+  /**
+   * Gets the minimum possible frequency of the value.
+   *
+   * @return The lower bound of frequency, equals to {@link #frequency()}.
+   */
+  int lowerBound();
+
+  /**
+   * Gets the maximum possible frequency of the value.
+   *
+   * @return The upper bound of frequency. Equals to the lower bound if the frequency is exact.
+   */
+  int upperBound();
+}
@@ -0,0 +1,61 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Blocked Bloom filter of strings: all bits of a string are set in one block of 512 bits (a cache line), so each
+ * operation touches a single cache line. False positive probability is about 1% at 10 bits per string and grows when
+ * more strings than expected are added. Strings are hashed by {@link KeyedHash} with a random key of the filter, so
+ * strings with equal {@link String#hashCode()} (crafted by an attacker) don't make the filter report them as present.
+ */
+final class BlockedBloomFilter {
+
+  static final int DEFAULT_BITS_PER_VALUE = 10;
+
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int BITS_PER_BLOCK_LOG2 = 9;
+  private static final int HASH_FUNCTIONS = 7;
+
+  private final long[] words;
+  private final int blocks;
+  private final long k0 = KeyedHash.newKey();
+  private final long k1 = KeyedHash.newKey();
+
+  /**
+   * Creates filter.
+   *
+   * @param expectedValues Expected number of unique strings. Must be >= 0.
+   * @param bitsPerValue   Number of bits per expected string. Must be > 0.
+   */
+  BlockedBloomFilter(long expectedValues, int bitsPerValue) {
+    assert expectedValues >= 0 : "expectedValues must be >= 0";
+    assert bitsPerValue > 0 : "bitsPerValue must be > 0";
+
+    final long bits = Math.max(expectedValues * bitsPerValue, 1L << BITS_PER_BLOCK_LOG2);
+    this.blocks = (int) Math.min((bits + (1L << BITS_PER_BLOCK_LOG2) - 1) >>> BITS_PER_BLOCK_LOG2,
+        Integer.MAX_VALUE / WORDS_PER_BLOCK);
+    this.words = new long[blocks * WORDS_PER_BLOCK];
+  }
+
+  /**
+   * Adds the string.
+   *
+   * @param value String to add. Nullable.
+   * @return True if the string might have been added before, false if it's added for the first time.
+   */
+  boolean add(String value) {
+    final long hash = Hashing.mix64(value == null ? k0 : KeyedHash.hash(k0, k1, value, value.length()));
+    final int blockStart = (int) (((hash >>> 32) * blocks) >>> 32) * WORDS_PER_BLOCK;
+    long positions = Hashing.mix64(hash);
+    boolean present = true;
+    for (int i = 0; i < HASH_FUNCTIONS; ++i) {
+      final int position = (int) positions & ((1 << BITS_PER_BLOCK_LOG2) - 1);
+      positions >>>= BITS_PER_BLOCK_LOG2;
+      final int word = blockStart + (position >>> 6);
+      final long mask = 1L << position;
+      if ((words[word] & mask) == 0) {
+        present = false;
+        words[word] |= mask;
+      }
+    }
+    return present;
+  }
+}
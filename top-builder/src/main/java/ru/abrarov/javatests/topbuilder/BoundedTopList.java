@@ -0,0 +1,68 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Top list built by an analyzer which may count approximately, with error bounds of its items.
+ *
+ * @see BudgetedFrequencyAnalyzer
+ * @see HierarchicalFrequencyAnalyzer
+ */
+public final class BoundedTopList {
+
+  private final List<ApproximateItem> items;
+  private final int maxError;
+
+  BoundedTopList(List<ApproximateItem> items, int maxError) {
+    this.items = items;
+    this.maxError = maxError;
+  }
+
+  /**
+   * Creates top list of the items counted with the given maximum error.
+   *
+   * @param top      Items of the top list with the counted (lower bound) frequencies.
+   * @param maxError The maximum error of counting. Must be >= 0.
+   * @return Top list with error bounds.
+   */
+  static BoundedTopList of(List<FrequencyAnalyzer.Item> top, int maxError) {
+    final List<ApproximateItem> items = new ArrayList<ApproximateItem>(top.size());
+    for (FrequencyAnalyzer.Item item : top) {
+      items.add(Items.newApproximateItem(item.value(), item.frequency(), item.frequency() + maxError));
+    }
+    return new BoundedTopList(Collections.unmodifiableList(items), maxError);
+  }
+
+  /**
+   * Gets items of the top list ordered by their lower bounds (descending), then by values (ascending).
+   *
+   * @return Items of the top list.
+   */
+  public List<ApproximateItem> items() {
+    return items;
+  }
+
+  /**
+   * Checks if the top list is exact.
+   *
+   * @return True if all values were counted exactly, i.e. frequencies of items are exact and the top list is the same
+   * as the one built by exact analyzers.
+   */
+  public boolean isExact() {
+    return maxError == 0;
+  }
+
+  /**
+   * Gets the maximum error of counting: frequency of each value is undercounted by at most this error. The upper bound
+   * of each item is its lower bound plus this error. A value missing in the top list has frequency not greater than
+   * this error if the top list is shorter than requested, or not greater than the upper bound of the last item
+   * otherwise.
+   *
+   * @return The maximum error of counting, 0 if the top list is exact.
+   */
+  public int maxError() {
+    return maxError;
+  }
+}
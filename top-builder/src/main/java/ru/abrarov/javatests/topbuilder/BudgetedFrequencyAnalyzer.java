@@ -0,0 +1,86 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implementation of the FrequencyAnalyzer which memory consumption is limited by the given budget. Values are counted
+ * exactly in {@link StringCountTable} while the estimated footprint of the table (its arrays, including the transient
+ * arrays of growth and the transient bit set of the rehash by keyed hash, and the retained values, see
+ * {@link MemoryEstimates}) fits the budget. When the next value doesn't
+ * fit, the table isn't grown anymore and counting continues approximately with Misra-Gries algorithm in place: the
+ * existing exact counts become the counters of the summary, and a value missing in the full table causes subtraction
+ * of the minimum count from all counters (removing the counters which become zero) instead of insertion. The total
+ * subtracted count is the maximum error of counting: each count is undercounted by at most this error, which is not
+ * greater than n / m where n is the number of values and m is the number of counters.
+ * <p>
+ * Values are accounted as if they are retained by the analyzer only, so the budget is an upper bound when values are
+ * shared with the caller.
+ *
+ * @see BoundedTopList
+ */
+public class BudgetedFrequencyAnalyzer implements FrequencyAnalyzer {
+
+  /**
+   * The minimum budget which fits the initial table.
+   */
+  public static final long MIN_MEMORY_BUDGET = 1024;
+
+  private final long memoryBudget;
+
+  /**
+   * Creates analyzer.
+   *
+   * @param memoryBudget The maximum memory taken by the analyzer in bytes. Must be >= {@link #MIN_MEMORY_BUDGET}.
+   */
+  public BudgetedFrequencyAnalyzer(long memoryBudget) {
+    assert memoryBudget >= MIN_MEMORY_BUDGET : "memoryBudget must be >= " + MIN_MEMORY_BUDGET;
+
+    this.memoryBudget = memoryBudget;
+  }
+
+  @Override
+  public List<Item> buildTopFrequentList(Iterator<String> values, int size) {
+    return new ArrayList<Item>(analyze(values, size).items());
+  }
+
+  /**
+   * Builds the list of the most frequent values with error bounds.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted.
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values with error bounds of their frequencies.
+   */
+  public BoundedTopList analyze(Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final StringCountTable table = new StringCountTable();
+    long keysSize = 0;
+    int maxError = 0;
+    while (values.hasNext()) {
+      final String value = values.next();
+      if (table.increment(value)) {
+        continue;
+      }
+      final long valueSize = value == null ? 0 : MemoryEstimates.stringSize(value);
+      // The table may be rehashed by keyed hash on any access, even after it stops growing
+      long footprint = table.arraysSizeInBytes() + table.rehashSizeInBytes() + keysSize + valueSize;
+      if (value != null && table.isFull()) {
+        // Old and new arrays coexist during growth
+        footprint += table.grownArraysSizeInBytes();
+      }
+      if (footprint <= memoryBudget) {
+        table.add(value);
+        keysSize += valueSize;
+        continue;
+      }
+      // The value would be the counter of the minimum count, so it's removed with the others. Empty table cannot
+      // take the value at all, the value is lost then.
+      maxError += Math.max(table.subtractMinimum(), 1);
+      keysSize = table.keysSizeInBytes();
+    }
+
+    return BoundedTopList.of(table.top(size), maxError);
+  }
+}
@@ -0,0 +1,319 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Incremental counter of values which periodically checkpoints its state to a memory-mapped snapshot file and restores
+ * the state from that file when reopened, e.g. after restart of JVM. Restoring takes time proportional to the number
+ * of unique values: the snapshot stores binary records which are read without any parsing.
+ * <p>
+ * Checkpoints are incremental: only the counts changed since the previous checkpoint of the same side of the snapshot
+ * (see {@link SnapshotFile}) and the values met for the first time are written. Checkpoint is performed in steps
+ * interleaved with counting, each step takes no longer than the configured budget, so counting is never stalled for a
+ * long time. The time is checked after the first {@link #MIN_STEP_RECORDS} written records, then every
+ * {@link #TIME_CHECK_INTERVAL} records and before each force of a segment of the snapshot, so a step exceeds the budget
+ * by at most the time of writing that many records or of forcing one segment: a step does at least this work to make
+ * progress. To guarantee that checkpoint completes, the number of values counted between steps adapts to the budget:
+ * if a step runs out of the budget then the next step is performed after half as many values as records it has
+ * written, so the number of pending records decreases. Checkpoint is consistent: it captures the counts at the moment
+ * when all changed counts have been written, later changes go to the next checkpoint.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @see FrequencyDistribution
+ */
+public class CheckpointedFrequencyCounter implements Closeable {
+
+  private static final int TIME_CHECK_INTERVAL = 16;
+  /**
+   * The minimum number of records written by a step: twice the minimum step interval, so that the number of pending
+   * records decreases.
+   */
+  private static final int MIN_STEP_RECORDS = 2;
+  private static final int MAX_STEP_INTERVAL = 256;
+  private static final int BOTH_SIDES = 3;
+
+  private enum CheckpointState {
+    IDLE, WRITING, FORCING
+  }
+
+  private static class Entry implements FrequencyAnalyzer.Item {
+
+    private final String value;
+    private int frequency;
+    /**
+     * Offset of the record in the snapshot or -1 if the record isn't allocated yet.
+     */
+    private long recordOffset = -1;
+    /**
+     * Bit mask of the sides of the snapshot record which need to be written.
+     */
+    private int pendingSides;
+
+    public Entry(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+
+    @Override
+    public int frequency() {
+      return frequency;
+    }
+  }
+
+  private final SnapshotFile snapshot;
+  private final int checkpointInterval;
+  private final int maxStepInterval;
+  private final long checkpointStepBudgetNanos;
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+  /**
+   * Entries which need to be written to each side of the snapshot.
+   */
+  private final List<ArrayDeque<Entry>> pendingEntries = Arrays.asList(new ArrayDeque<Entry>(),
+      new ArrayDeque<Entry>());
+  private CheckpointState checkpointState = CheckpointState.IDLE;
+  private int checkpointSide;
+  private long checkpointArenaEnd;
+  private int checkpointRecordCount;
+  /**
+   * Number of counted values after which the next step of the checkpoint in progress is performed.
+   */
+  private int stepInterval;
+  private int valuesSinceStep;
+
+  /**
+   * Opens counter. If the snapshot file exists then the state of its last checkpoint is restored.
+   *
+   * @param snapshotFile              Snapshot file.
+   * @param checkpointInterval        Number of counted values after which the next checkpoint is started. Must be > 0.
+   * @param checkpointStepBudgetNanos The maximum time of a single checkpoint step in nanoseconds. Must be > 0.
+   * @throws IOException If the snapshot file cannot be opened or read.
+   */
+  public CheckpointedFrequencyCounter(File snapshotFile, int checkpointInterval, long checkpointStepBudgetNanos)
+      throws IOException {
+    this(snapshotFile, checkpointInterval, checkpointStepBudgetNanos, SnapshotFile.DEFAULT_SEGMENT_SIZE);
+  }
+
+  CheckpointedFrequencyCounter(File snapshotFile, int checkpointInterval, long checkpointStepBudgetNanos,
+                               int segmentSize) throws IOException {
+    assert checkpointInterval > 0 : "checkpointInterval must be > 0";
+    assert checkpointStepBudgetNanos > 0 : "checkpointStepBudgetNanos must be > 0";
+
+    this.checkpointInterval = checkpointInterval;
+    this.maxStepInterval = Math.min(checkpointInterval, MAX_STEP_INTERVAL);
+    this.stepInterval = maxStepInterval;
+    this.checkpointStepBudgetNanos = checkpointStepBudgetNanos;
+    this.snapshot = new SnapshotFile(snapshotFile, segmentSize);
+    try {
+      restore();
+    } catch (IOException e) {
+      snapshot.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Counts the given value. Performs a checkpoint step if it's time to.
+   *
+   * @param value Value to count. Nullable.
+   * @throws IOException If writing of the snapshot fails.
+   */
+  public void add(String value) throws IOException {
+    Entry entry = entries.get(value);
+    if (entry == null) {
+      entry = new Entry(value);
+      entries.put(value, entry);
+    }
+    ++entry.frequency;
+    markPending(entry, BOTH_SIDES);
+    if (++valuesSinceStep >= (checkpointState == CheckpointState.IDLE ? checkpointInterval : stepInterval)) {
+      valuesSinceStep = 0;
+      checkpointStep(checkpointStepBudgetNanos);
+    }
+  }
+
+  /**
+   * Counts the given values.
+   *
+   * @param values Values to count. Null iterator values are permitted.
+   * @throws IOException If writing of the snapshot fails.
+   */
+  public void addAll(Iterator<String> values) throws IOException {
+    while (values.hasNext()) {
+      add(values.next());
+    }
+  }
+
+  /**
+   * Performs checkpoint of all values counted so far. Completes the checkpoint in progress (if any) first because it
+   * may capture an earlier state. Blocks until the checkpoint is committed.
+   *
+   * @throws IOException If writing of the snapshot fails.
+   */
+  public void checkpoint() throws IOException {
+    while (checkpointState != CheckpointState.IDLE) {
+      checkpointStep(Long.MAX_VALUE);
+    }
+    do {
+      checkpointStep(Long.MAX_VALUE);
+    } while (checkpointState != CheckpointState.IDLE);
+    valuesSinceStep = 0;
+  }
+
+  /**
+   * Checks if checkpoint is in progress.
+   *
+   * @return True if checkpoint is started and not committed yet.
+   */
+  public boolean isCheckpointInProgress() {
+    return checkpointState != CheckpointState.IDLE;
+  }
+
+  /**
+   * Gets the number of the last committed checkpoint. The number is kept in the snapshot file, so it continues growing
+   * after restore.
+   *
+   * @return Number of the last committed checkpoint or 0 if there were no checkpoints.
+   */
+  public long checkpointGeneration() {
+    return snapshot.generation();
+  }
+
+  /**
+   * Builds distribution of the values counted so far.
+   *
+   * @return Distribution of the values counted so far. Isn't affected by further counting.
+   */
+  public FrequencyDistribution distribution() {
+    final Map<String, FrequencyAnalyzer.Item> items = new HashMap<String, FrequencyAnalyzer.Item>(
+        entries.size() * 4 / 3 + 1);
+    for (Entry entry : entries.values()) {
+      items.put(entry.value, Items.newItem(entry.value, entry.frequency));
+    }
+    return new FrequencyDistribution(items);
+  }
+
+  /**
+   * Performs final checkpoint and closes the snapshot file.
+   *
+   * @throws IOException If writing of the snapshot fails.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      checkpoint();
+    } finally {
+      snapshot.close();
+    }
+  }
+
+  /**
+   * Restores entries from the last committed checkpoint. The other side of the snapshot may contain counts of
+   * incomplete checkpoint, so all restored entries need to be written to that side.
+   *
+   * @throws IOException If reading of the snapshot fails.
+   */
+  private void restore() throws IOException {
+    final int otherSide = 1 - (int) (snapshot.generation() & 1);
+    snapshot.readRecords(new SnapshotFile.RecordVisitor() {
+      @Override
+      public void visit(long offset, String value, int count) {
+        final Entry entry = new Entry(value);
+        entry.frequency = count;
+        entry.recordOffset = offset;
+        entries.put(value, entry);
+        markPending(entry, 1 << otherSide);
+      }
+    });
+  }
+
+  private void markPending(Entry entry, int sides) {
+    final int newSides = sides & ~entry.pendingSides;
+    if (newSides == 0) {
+      return;
+    }
+    for (int side = 0; side < 2; ++side) {
+      if ((newSides & (1 << side)) != 0) {
+        pendingEntries.get(side).add(entry);
+      }
+    }
+    entry.pendingSides |= newSides;
+  }
+
+  /**
+   * Performs the next step of the checkpoint: starts new checkpoint, writes changed entries to the snapshot, forces
+   * the snapshot to the storage or commits checkpoint.
+   *
+   * @param budgetNanos The maximum time of the step in nanoseconds.
+   * @throws IOException If writing of the snapshot fails.
+   */
+  private void checkpointStep(long budgetNanos) throws IOException {
+    final long startTime = System.nanoTime();
+    if (checkpointState == CheckpointState.IDLE) {
+      checkpointSide = (int) ((snapshot.generation() + 1) & 1);
+      checkpointState = CheckpointState.WRITING;
+    }
+    // A step forces at least one segment unless it has written records, so that checkpoint completes
+    boolean progress = false;
+    if (checkpointState == CheckpointState.WRITING) {
+      if (!writePendingEntries(startTime, budgetNanos)) {
+        return;
+      }
+      // All changes are written so the side of snapshot is consistent. Later changes go to the next checkpoint.
+      checkpointArenaEnd = snapshot.arenaEnd();
+      checkpointRecordCount = snapshot.recordCount();
+      checkpointState = CheckpointState.FORCING;
+      progress = true;
+    }
+    while (!progress || System.nanoTime() - startTime < budgetNanos) {
+      if (!snapshot.forceNextSegment()) {
+        snapshot.commit(snapshot.generation() + 1, checkpointArenaEnd, checkpointRecordCount);
+        checkpointState = CheckpointState.IDLE;
+        return;
+      }
+      progress = true;
+    }
+  }
+
+  /**
+   * Writes entries pending for the side of the current checkpoint. Writes at least {@link #MIN_STEP_RECORDS} entries.
+   * If the budget is spent before all entries are written then adapts the step interval to the number of written
+   * entries.
+   *
+   * @param startTime   Start time of the checkpoint step.
+   * @param budgetNanos The maximum time of the step in nanoseconds.
+   * @return True if all pending entries are written.
+   * @throws IOException If writing of the snapshot fails.
+   */
+  private boolean writePendingEntries(long startTime, long budgetNanos) throws IOException {
+    final ArrayDeque<Entry> pending = pendingEntries.get(checkpointSide);
+    final int sideMask = 1 << checkpointSide;
+    int written = 0;
+    Entry entry;
+    while ((entry = pending.poll()) != null) {
+      if (entry.recordOffset < 0) {
+        entry.recordOffset = snapshot.appendRecord(entry.value);
+      }
+      snapshot.writeCount(entry.recordOffset, checkpointSide, entry.frequency);
+      entry.pendingSides &= ~sideMask;
+      if (++written % TIME_CHECK_INTERVAL == MIN_STEP_RECORDS && System.nanoTime() - startTime >= budgetNanos
+          && !pending.isEmpty()) {
+        // Up to stepInterval entries become pending until the next step, so fewer values are counted between steps
+        // if less than twice as many entries are written within the budget
+        if (written < 2 * stepInterval) {
+          stepInterval = written / 2;
+        }
+        return false;
+      }
+    }
+    stepInterval = maxStepInterval;
+    return true;
+  }
+}
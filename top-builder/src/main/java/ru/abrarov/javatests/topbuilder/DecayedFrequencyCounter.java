@@ -0,0 +1,186 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counter of values arriving over time which weights each occurrence by its age: an occurrence at time t has weight
+ * 2^(-(T - t) / h) at time T, where h is the half-life. So the score of a value at time T is the number of its
+ * occurrences with exponentially decayed weights, and the top list shows the values which are frequent recently
+ * ("trending") instead of the values which were frequent ever.
+ * <p>
+ * Weights are decayed forward: the weight exp(r * (t - L)) relative to the landmark time L (the decay rate
+ * r = ln 2 / h) is added to the value once, and scores are divided by exp(r * (T - L)) at query time only. So an update
+ * is O(1) and no counter is ever updated because of time passing. Weights grow exponentially with time since the
+ * landmark, so when the exponent exceeds {@link #MAX_EXPONENT} the landmark is moved to the current time and all
+ * weights are scaled down, which is O(number of values) once per {@link #MAX_EXPONENT} / r units of time. Values which
+ * weights become negligible are removed then.
+ * <p>
+ * Decay doesn't change the order of weights, so the top list is refreshed incrementally (see
+ * {@link IncrementalFrequencyCounter}): it's selected from the previous top list and the values counted since the
+ * previous refresh, so latency of a query doesn't depend on the number of unique values.
+ * <p>
+ * The bounded variant keeps at most the given number of values: if a new value arrives when the table is full then the
+ * weight of the 1/4 quantile is subtracted from all weights and the values which weights become zero are removed (a
+ * weighted variant of Misra-Gries algorithm, see {@link BudgetedFrequencyAnalyzer}). Each value is underestimated by at
+ * most the sum of subtracted weights ({@link #maxError}), which is at most about 4 / (3 * m) of the total score of all
+ * values, where m is the maximum number of values. The top list is selected from all kept values after a subtraction.
+ * <p>
+ * Times are in any units (e.g. milliseconds), the same for the half-life and for all times. Times of values may go
+ * back, but the times of queries should not be less than the times of values.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class DecayedFrequencyCounter {
+
+  /**
+   * The maximum exponent of weights relative to the landmark. Weights are not greater than e^256 (about
+   * 1.5 * 10^111), so sums of up to 10^197 such weights don't overflow.
+   */
+  static final double MAX_EXPONENT = 256;
+
+  /**
+   * Fraction of values removed by the bounded variant when the table is full.
+   */
+  private static final double EVICTED_FRACTION = 0.25;
+
+  private final StringWeightTable table = new StringWeightTable();
+  private final int topListSize;
+  private final double decayRate;
+  private final int maxValues;
+  private final TopListCandidates candidates = new TopListCandidates();
+  private long landmark;
+  private double maxError;
+  private long valueCount;
+
+  /**
+   * Creates counter keeping all values.
+   *
+   * @param topListSize The maximum size of the top list. Must be >= 0.
+   * @param halfLife    Time after which weight of an occurrence halves. Must be > 0.
+   */
+  public DecayedFrequencyCounter(int topListSize, long halfLife) {
+    this(topListSize, halfLife, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates counter keeping the limited number of values.
+   *
+   * @param topListSize The maximum size of the top list. Must be >= 0.
+   * @param halfLife    Time after which weight of an occurrence halves. Must be > 0.
+   * @param maxValues   The maximum number of kept values. Must be > topListSize. Greater number means less error.
+   */
+  public DecayedFrequencyCounter(int topListSize, long halfLife, int maxValues) {
+    assert topListSize >= 0 : "Size of the list must be >= 0";
+    assert halfLife > 0 : "halfLife must be > 0";
+    assert maxValues > topListSize : "maxValues must be > topListSize";
+
+    this.topListSize = topListSize;
+    this.decayRate = Math.log(2) / halfLife;
+    this.maxValues = maxValues;
+  }
+
+  /**
+   * Counts the value.
+   *
+   * @param value Value to count. Nullable.
+   * @param time  Time of the value.
+   */
+  public void add(String value, long time) {
+    ++valueCount;
+    double exponent = decayRate * (time - landmark);
+    if (exponent > MAX_EXPONENT) {
+      moveLandmark(time);
+      exponent = 0;
+    }
+    final double weight = Math.exp(exponent);
+    if (weight < Double.MIN_NORMAL) {
+      // Too old to be taken into account
+      return;
+    }
+    if (!table.increment(value, weight)) {
+      if (table.size() >= maxValues) {
+        final double subtracted = table.quantile(EVICTED_FRACTION);
+        table.subtract(subtracted);
+        maxError += subtracted;
+        candidates.refreshFromAll();
+      }
+      table.add(value, weight);
+    }
+    candidates.counted(value, table.size());
+  }
+
+  /**
+   * Gets the number of counted values.
+   *
+   * @return Number of values counted so far.
+   */
+  public long valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the score of the value.
+   *
+   * @param value Value to search for. Nullable.
+   * @param time  Time of the query.
+   * @return Score of the value at the given time, 0 if the value isn't kept.
+   */
+  public double score(String value, long time) {
+    return table.get(value) * decayFactor(time);
+  }
+
+  /**
+   * Gets the maximum error of scores: the score of each value is underestimated by at most this error. Scores are exact
+   * (up to rounding) if the number of values isn't limited or if the limit was never reached.
+   *
+   * @param time Time of the query.
+   * @return The maximum error of scores at the given time.
+   */
+  public double maxError(long time) {
+    return maxError * decayFactor(time);
+  }
+
+  /**
+   * Gets the top list of the values counted so far.
+   *
+   * @param time Time of the query.
+   * @return List of the values with the greatest scores at the given time ordered by scores (descending), then by
+   * values (ascending).
+   */
+  public List<ScoredItem> topTrendingList(long time) {
+    final double factor = decayFactor(time);
+    final List<ScoredItem> top = candidates.isRefreshFromAll() ? table.top(topListSize, factor) : selectTop(factor);
+    final List<String> values = new ArrayList<String>(top.size());
+    for (ScoredItem item : top) {
+      values.add(item.value());
+    }
+    candidates.refreshed(values);
+    return Collections.unmodifiableList(top);
+  }
+
+  private List<ScoredItem> selectTop(double factor) {
+    final List<ScoredItem> items = new ArrayList<ScoredItem>();
+    for (String value : candidates.values()) {
+      final double weight = table.get(value);
+      // Values removed because of negligible weights are skipped
+      if (weight != 0) {
+        items.add(Items.newScoredItem(value, weight * factor));
+      }
+    }
+    Collections.sort(items, Items.SCORE_ORDER);
+    return new ArrayList<ScoredItem>(items.subList(0, Math.min(topListSize, items.size())));
+  }
+
+  private double decayFactor(long time) {
+    return Math.exp(-decayRate * (time - landmark));
+  }
+
+  private void moveLandmark(long time) {
+    final double factor = decayFactor(time);
+    table.scale(factor);
+    maxError *= factor;
+    landmark = time;
+  }
+}
@@ -0,0 +1,85 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Decision model based on thresholds which can be tuned:
+ * <ol>
+ * <li>If distinct values of the sample have less than {@link #MIN_DISTINCT_HASH_CODE_SHARE} distinct hash codes per
+ * distinct value (see {@link InputProfile#distinctHashCodeCount()}) then {@link OpenAddressingFrequencyAnalyzer} is
+ * selected: values are likely crafted to collide, java.util.HashMap keeps colliding values in a tree of one bucket and
+ * compares their contents on each access, while the primitive table rehashes them by keyed hash (see
+ * {@link StringCountTable}).</li>
+ * <li>If the estimated number of distinct values (see {@link InputProfile#estimatedDistinctCount()}) is at most the
+ * small cardinality threshold then {@link NaiveFrequencyAnalyzer} is selected: the map fits CPU caches, so
+ * java.util.HashMap is as fast as the primitive table or faster, while its code is usually compiled by JIT already.
+ * If repeated values of the sample are mostly distinct String instances (see {@link InputProfile#sharedRepeatShare()})
+ * then the fresh small cardinality threshold is used instead: hashing and comparison of contents dominate both
+ * implementations, and java.util.HashMap stays faster up to larger numbers of distinct values.</li>
+ * <li>Otherwise {@link OpenAddressingFrequencyAnalyzer} is selected: it is about 2 times faster and takes about 3 times
+ * less memory when the number of distinct values is large.</li>
+ * </ol>
+ * The default thresholds are measured by AnalyzerBenchmark: java.util.HashMap is faster up to about 4000 distinct
+ * values of shared instances and up to about 32000 distinct values of distinct instances. They are kept low because the
+ * estimate of the number of distinct values is a lower bound, which is far below the actual number for long-tailed
+ * (e.g. Zipf) inputs.
+ *
+ * @see AdaptiveFrequencyAnalyzer
+ */
+public class DefaultSelectionPolicy implements SelectionPolicy {
+
+  public static final int DEFAULT_SMALL_CARDINALITY = 4096;
+  public static final int DEFAULT_FRESH_SMALL_CARDINALITY = 1 << 15;
+
+  /**
+   * The minimum ratio of the number of distinct hash codes to the number of distinct values of the sample for which
+   * java.util.HashMap may be selected. Random strings have nearly unique hash codes.
+   */
+  static final double MIN_DISTINCT_HASH_CODE_SHARE = 0.5;
+
+  /**
+   * The minimum share of the repeated values of the sample sharing String instances for which the small cardinality
+   * threshold is used instead of the fresh one.
+   */
+  static final double MIN_SHARED_REPEAT_SHARE = 0.5;
+
+  private final int smallCardinality;
+  private final int freshSmallCardinality;
+
+  public DefaultSelectionPolicy() {
+    this(DEFAULT_SMALL_CARDINALITY, DEFAULT_FRESH_SMALL_CARDINALITY);
+  }
+
+  /**
+   * Creates policy.
+   *
+   * @param smallCardinality      The maximum estimated number of distinct values for which java.util.HashMap is
+   *                              selected if repeated values share String instances. Must be >= 0.
+   * @param freshSmallCardinality The maximum estimated number of distinct values for which java.util.HashMap is
+   *                              selected if repeated values are distinct String instances. Must be >= 0.
+   */
+  public DefaultSelectionPolicy(int smallCardinality, int freshSmallCardinality) {
+    assert smallCardinality >= 0 : "smallCardinality must be >= 0";
+    assert freshSmallCardinality >= 0 : "freshSmallCardinality must be >= 0";
+
+    this.smallCardinality = smallCardinality;
+    this.freshSmallCardinality = freshSmallCardinality;
+  }
+
+  @Override
+  public Selection select(InputProfile profile) {
+    if (profile.distinctHashCodeCount() < profile.distinctCount() * MIN_DISTINCT_HASH_CODE_SHARE) {
+      return new Selection("primitive table", new OpenAddressingFrequencyAnalyzer(),
+          String.format("%d distinct hash codes of %d distinct values", profile.distinctHashCodeCount(),
+              profile.distinctCount()));
+    }
+    final boolean shared = profile.sharedRepeatShare() >= MIN_SHARED_REPEAT_SHARE;
+    final int threshold = shared ? smallCardinality : freshSmallCardinality;
+    final String distinct = String.format("%s of %s instances", profile.isComplete() ? "distinct values"
+        : "estimated distinct values", shared ? "shared" : "fresh");
+    if (profile.estimatedDistinctCount() <= threshold) {
+      return new Selection("hash map", new NaiveFrequencyAnalyzer(),
+          String.format("%d <= %d %s", profile.estimatedDistinctCount(), threshold, distinct));
+    }
+    return new Selection("primitive table", new OpenAddressingFrequencyAnalyzer(),
+        String.format("%d > %d %s", profile.estimatedDistinctCount(), threshold, distinct));
+  }
+}
@@ -0,0 +1,30 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Top list item which frequency is estimated from a sample of values. {@link #frequency()} returns the estimate.
+ *
+ * @see SampledTopList
+ */
+public interface EstimatedItem extends FrequencyAnalyzer.Item {
+
+  /**
+   * Gets the number of occurrences of the value in the sample.
+   *
+   * @return Frequency of the value in the sample.
+   */
+  int sampledFrequency();
+
+  /**
+   * Gets the lower bound of the confidence interval of frequency.
+   *
+   * @return The lower bound of frequency, not less than {@link #sampledFrequency()}.
+   */
+  int lowerBound();
+
+  /**
+   * Gets the upper bound of the confidence interval of frequency.
+   *
+   * @return The upper bound of frequency.
+   */
+  int upperBound();
+}
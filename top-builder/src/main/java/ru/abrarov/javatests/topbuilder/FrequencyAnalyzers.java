@@ -0,0 +1,42 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Factory of FrequencyAnalyzer implementations.
+ *
+ * @see FrequencyAnalyzer
+ */
+public final class FrequencyAnalyzers {
+
+  /**
+   * Default number of the first values used to build profile of values. The sample is enough to estimate whether the
+   * number of distinct values exceeds the thresholds of {@link DefaultSelectionPolicy} (the estimate is rough near
+   * {@link DefaultSelectionPolicy#DEFAULT_FRESH_SMALL_CARDINALITY}, where both implementations are about as fast), and
+   * it's small enough to make moving of its counts to the selected implementation negligible.
+   */
+  public static final int DEFAULT_SAMPLE_SIZE = 1 << 12;
+
+  private FrequencyAnalyzers() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Creates analyzer selecting implementation according to profile of the analyzed values with {@link
+   * DefaultSelectionPolicy}.
+   *
+   * @return Adaptive analyzer.
+   */
+  public static AdaptiveFrequencyAnalyzer auto() {
+    return auto(new DefaultSelectionPolicy(), DEFAULT_SAMPLE_SIZE);
+  }
+
+  /**
+   * Creates analyzer selecting implementation according to profile of the analyzed values.
+   *
+   * @param policy     Decision model selecting implementation.
+   * @param sampleSize Number of the first values used to build profile. Must be > 0.
+   * @return Adaptive analyzer.
+   */
+  public static AdaptiveFrequencyAnalyzer auto(SelectionPolicy policy, int sampleSize) {
+    return new AdaptiveFrequencyAnalyzer(policy, sampleSize);
+  }
+}
@@ -0,0 +1,57 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Subscriber counting batches of values pushed by a {@link java.util.concurrent.Flow.Publisher}, e.g. lines of a
+ * block of input. Demand is requested in batches, so per-item overhead of the publisher is amortized by the size of
+ * batches. Snapshots are the same as of {@link FrequencySubscriber}, the numbers of values are counted in values, not
+ * in batches.
+ * <p>
+ * Null values of batches are permitted. Batches are not retained. The subscriber may be subscribed once.
+ *
+ * @see FrequencySubscriber
+ */
+public class FrequencyBatchSubscriber extends AbstractFrequencySubscriber<List<String>> {
+
+  public static final int DEFAULT_REQUEST_SIZE = 16;
+
+  /**
+   * Creates subscriber which delivers snapshots with {@link ForkJoinPool#commonPool()}.
+   *
+   * @param topListSize           The maximum size of snapshots of the top list. Must be >= 0.
+   * @param snapshotValueInterval Number of counted values after which snapshot is published. Must be >= 0, 0 disables
+   *                              publishing by the number of values.
+   * @param snapshotIntervalNanos Time after which snapshot is published in nanoseconds. Must be >= 0, 0 disables
+   *                              publishing by time.
+   */
+  public FrequencyBatchSubscriber(int topListSize, int snapshotValueInterval, long snapshotIntervalNanos) {
+    this(topListSize, DEFAULT_REQUEST_SIZE, snapshotValueInterval, snapshotIntervalNanos, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates subscriber.
+   *
+   * @param topListSize           The maximum size of snapshots of the top list. Must be >= 0.
+   * @param requestSize           Number of batches requested from the publisher at once. Must be > 0.
+   * @param snapshotValueInterval Number of counted values after which snapshot is published. Must be >= 0, 0 disables
+   *                              publishing by the number of values.
+   * @param snapshotIntervalNanos Time after which snapshot is published in nanoseconds. Must be >= 0, 0 disables
+   *                              publishing by time.
+   * @param snapshotExecutor      Executor delivering snapshots to their subscribers.
+   */
+  public FrequencyBatchSubscriber(int topListSize, int requestSize, int snapshotValueInterval,
+                                  long snapshotIntervalNanos, Executor snapshotExecutor) {
+    super(topListSize, requestSize, snapshotValueInterval, snapshotIntervalNanos, snapshotExecutor);
+  }
+
+  @Override
+  int count(StringCountTable table, List<String> values) {
+    for (String value : values) {
+      table.add(value);
+    }
+    return values.size();
+  }
+}
@@ -0,0 +1,172 @@
+package ru.abrarov.javatests.topbuilder;
+
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer.Item;
+
+import java.util.*;
+
+/**
+ * Distribution of the analyzed values which can be queried many times without recounting of the values. Items are
+ * sorted by frequency lazily - on the first query which needs that order - and only once, so the subsequent queries
+ * (top lists of any size, ranks, thresholds) reuse the cached order.
+ * <p>
+ * The order of items is the same as the order of {@link FrequencyAnalyzer#buildTopFrequentList} results: descending
+ * frequency, then ascending value (null goes first).
+ * <p>
+ * Instances are not thread safe because of lazy caching.
+ *
+ * @see NaiveFrequencyAnalyzer#buildDistribution
+ */
+public final class FrequencyDistribution {
+
+  private final Map<String, ? extends Item> items;
+  private Item[] sortedItems;
+  private SortedMap<Integer, Integer> histogram;
+  private long totalCount = -1;
+
+  /**
+   * Creates distribution.
+   *
+   * @param items Items of distribution mapped by their values. Isn't copied so must not be modified later.
+   */
+  FrequencyDistribution(Map<String, ? extends Item> items) {
+    this.items = items;
+  }
+
+  /**
+   * Gets the number of unique values.
+   *
+   * @return Number of unique values.
+   */
+  public int distinctCount() {
+    return items.size();
+  }
+
+  /**
+   * Gets the total number of the analyzed values.
+   *
+   * @return Sum of frequencies of all unique values.
+   */
+  public long totalCount() {
+    if (totalCount < 0) {
+      long sum = 0;
+      for (Item item : items.values()) {
+        sum += item.frequency();
+      }
+      totalCount = sum;
+    }
+    return totalCount;
+  }
+
+  /**
+   * Builds the list of the most frequent values.
+   *
+   * @param size The maximum size of the list to be built. Must be >= 0.
+   * @return Unmodifiable list of the most frequent values with their frequencies.
+   */
+  public List<Item> top(int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final Item[] sorted = sortedItems();
+    return unmodifiableList(sorted, Math.min(size, sorted.length));
+  }
+
+  /**
+   * Gets the frequency of the given value.
+   *
+   * @param value Value to search for. Nullable.
+   * @return Frequency of the given value or 0 if the value wasn't met.
+   */
+  public int frequencyOf(String value) {
+    final Item item = items.get(value);
+    return item == null ? 0 : item.frequency();
+  }
+
+  /**
+   * Gets the rank of the given value, i.e. 1-based position of the value in the list of the most frequent values.
+   * Values having equal frequencies get different ranks according to the order of values.
+   *
+   * @param value Value to search for. Nullable.
+   * @return Rank (>= 1) of the given value or -1 if the value wasn't met.
+   */
+  public int rankOf(String value) {
+    final Item item = items.get(value);
+    if (item == null) {
+      return -1;
+    }
+    return Arrays.binarySearch(sortedItems(), item, Items.FREQUENCY_ORDER) + 1;
+  }
+
+  /**
+   * Builds the list of all values having frequency not less than the given one.
+   *
+   * @param frequency Minimum frequency of the values to be included.
+   * @return Unmodifiable list of the values having frequency not less than the given one, in order of the list of the
+   * most frequent values.
+   */
+  public List<Item> valuesWithFrequencyAtLeast(int frequency) {
+    return unmodifiableList(sortedItems(), countOfValuesWithFrequencyAtLeast(frequency));
+  }
+
+  /**
+   * Counts unique values having frequency not less than the given one.
+   *
+   * @param frequency Minimum frequency of the values to be counted.
+   * @return Number of unique values having frequency not less than the given one.
+   */
+  public int countOfValuesWithFrequencyAtLeast(int frequency) {
+    final Item[] sorted = sortedItems();
+    // Binary search of the first item with frequency less than the given one
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (sorted[middle].frequency() >= frequency) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Builds histogram of the distribution.
+   *
+   * @return Unmodifiable map of frequency to the number of unique values having that frequency. Contains only
+   * frequencies of the met values.
+   */
+  public SortedMap<Integer, Integer> histogram() {
+    if (histogram == null) {
+      final SortedMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
+      final Item[] sorted = sortedItems();
+      int i = 0;
+      while (i < sorted.length) {
+        final int frequency = sorted[i].frequency();
+        int j = i + 1;
+        while (j < sorted.length && sorted[j].frequency() == frequency) {
+          ++j;
+        }
+        map.put(frequency, j - i);
+        i = j;
+      }
+      histogram = Collections.unmodifiableSortedMap(map);
+    }
+    return histogram;
+  }
+
+  private Item[] sortedItems() {
+    if (sortedItems == null) {
+      final Item[] sorted = items.values().toArray(new Item[items.size()]);
+      Arrays.sort(sorted, Items.FREQUENCY_ORDER);
+      sortedItems = sorted;
+    }
+    return sortedItems;
+  }
+
+  private static List<Item> unmodifiableList(Item[] items, int size) {
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(items).subList(0, size));
+  }
+}
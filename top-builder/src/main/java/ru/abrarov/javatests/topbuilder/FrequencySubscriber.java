@@ -0,0 +1,54 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Subscriber counting values pushed by a {@link java.util.concurrent.Flow.Publisher} with demand-based backpressure
+ * and publishing snapshots of the top list of the most frequent values, see {@link #snapshots()}. It's an
+ * alternative of {@link FrequencyAnalyzer} for push-based sources which doesn't need a queue and a thread bridging the
+ * source to an iterator.
+ * <p>
+ * The subscriber may be subscribed once.
+ *
+ * @see FrequencyBatchSubscriber
+ */
+public class FrequencySubscriber extends AbstractFrequencySubscriber<String> {
+
+  public static final int DEFAULT_REQUEST_SIZE = 256;
+
+  /**
+   * Creates subscriber which delivers snapshots with {@link ForkJoinPool#commonPool()}.
+   *
+   * @param topListSize           The maximum size of snapshots of the top list. Must be >= 0.
+   * @param snapshotValueInterval Number of counted values after which snapshot is published. Must be >= 0, 0 disables
+   *                              publishing by the number of values.
+   * @param snapshotIntervalNanos Time after which snapshot is published in nanoseconds. Must be >= 0, 0 disables
+   *                              publishing by time.
+   */
+  public FrequencySubscriber(int topListSize, int snapshotValueInterval, long snapshotIntervalNanos) {
+    this(topListSize, DEFAULT_REQUEST_SIZE, snapshotValueInterval, snapshotIntervalNanos, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates subscriber.
+   *
+   * @param topListSize           The maximum size of snapshots of the top list. Must be >= 0.
+   * @param requestSize           Number of values requested from the publisher at once. Must be > 0.
+   * @param snapshotValueInterval Number of counted values after which snapshot is published. Must be >= 0, 0 disables
+   *                              publishing by the number of values.
+   * @param snapshotIntervalNanos Time after which snapshot is published in nanoseconds. Must be >= 0, 0 disables
+   *                              publishing by time.
+   * @param snapshotExecutor      Executor delivering snapshots to their subscribers.
+   */
+  public FrequencySubscriber(int topListSize, int requestSize, int snapshotValueInterval, long snapshotIntervalNanos,
+                             Executor snapshotExecutor) {
+    super(topListSize, requestSize, snapshotValueInterval, snapshotIntervalNanos, snapshotExecutor);
+  }
+
+  @Override
+  int count(StringCountTable table, String value) {
+    table.add(value);
+    return 1;
+  }
+}
@@ -0,0 +1,287 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Counter of values in many independent groups (e.g. tenants or categories), each having its own top list. Memory is
+ * pooled, so a group costs a few dozen bytes plus its values instead of an analyzer with a hash map per group:
+ * <ul>
+ * <li>the ids of groups are kept in one {@link StringCountTable} and the state of groups in arrays indexed by id;</li>
+ * <li>the values of a small group are kept inline in a slab of a shared arena (parallel arrays of values, hashes and
+ * counts) and found by linear scan. Slabs have capacities of powers of 2 up to {@link #INLINE_LIMIT}, a full slab is
+ * moved to a slab of double capacity and freed slabs are reused by groups of the same size class;</li>
+ * <li>a group having more than {@link #INLINE_LIMIT} unique values is promoted to its own {@link StringCountTable}
+ * which counts values exactly or, if the number of values per group is limited, with Misra-Gries algorithm in place
+ * (see {@link BudgetedFrequencyAnalyzer}).</li>
+ * </ul>
+ * Instances are not thread safe, see {@link ShardedGroupedFrequencyCounter} for parallel counting.
+ */
+public class GroupedFrequencyCounter {
+
+  /**
+   * The maximum number of unique values of a group kept inline.
+   */
+  static final int INLINE_LIMIT = 16;
+
+  private static final int SLAB_CLASSES = Integer.numberOfTrailingZeros(INLINE_LIMIT) + 1;
+  private static final int INITIAL_GROUP_CAPACITY = 16;
+  private static final int INITIAL_ARENA_CAPACITY = 64;
+  private static final int NO_SLAB = -1;
+
+  private final int maxValuesPerGroup;
+  /**
+   * Id of group plus 1 by group.
+   */
+  private final StringCountTable groupIds = new StringCountTable();
+  private String[] groupNames = new String[INITIAL_GROUP_CAPACITY];
+  private int[] groupTotals = new int[INITIAL_GROUP_CAPACITY];
+  /**
+   * Offset of the slab of the group in the arena if >= 0, or -(index of the table of the group + 1) if < 0.
+   */
+  private int[] slabOffsets = new int[INITIAL_GROUP_CAPACITY];
+  private byte[] slabClasses = new byte[INITIAL_GROUP_CAPACITY];
+  private byte[] slabSizes = new byte[INITIAL_GROUP_CAPACITY];
+  private int groupCount;
+  private long valueCount;
+
+  private String[] arenaValues = new String[INITIAL_ARENA_CAPACITY];
+  private int[] arenaHashes = new int[INITIAL_ARENA_CAPACITY];
+  /**
+   * Counts of values, or offset of the next free slab of the same class for the first entry of a free slab.
+   */
+  private int[] arenaCounts = new int[INITIAL_ARENA_CAPACITY];
+  private int arenaSize;
+  private final int[] freeSlabs = new int[SLAB_CLASSES];
+
+  private final List<StringCountTable> tables = new ArrayList<StringCountTable>();
+  private int[] tableMaxErrors = new int[INITIAL_GROUP_CAPACITY];
+
+  /**
+   * Creates counter counting all values exactly.
+   */
+  public GroupedFrequencyCounter() {
+    this(0);
+  }
+
+  /**
+   * Creates counter.
+   *
+   * @param maxValuesPerGroup The maximum number of values counted for a group, 0 means no limit. If greater than 0 then
+   *                          must be > {@link #INLINE_LIMIT}: the groups having more unique values are counted
+   *                          approximately in the limited memory.
+   */
+  public GroupedFrequencyCounter(int maxValuesPerGroup) {
+    assert maxValuesPerGroup == 0 || maxValuesPerGroup > INLINE_LIMIT
+        : "maxValuesPerGroup must be 0 or > " + INLINE_LIMIT;
+
+    this.maxValuesPerGroup = maxValuesPerGroup;
+    Arrays.fill(freeSlabs, NO_SLAB);
+  }
+
+  /**
+   * Counts the value in the group.
+   *
+   * @param group Group of the value. Nullable.
+   * @param value Value to count. Nullable.
+   */
+  public void add(String group, String value) {
+    ++valueCount;
+    int id = groupIds.get(group) - 1;
+    if (id < 0) {
+      id = newGroup(group);
+    }
+    ++groupTotals[id];
+    final int offset = slabOffsets[id];
+    if (offset < 0) {
+      addToTable(-offset - 1, value);
+      return;
+    }
+    final int hash = value == null ? 0 : value.hashCode();
+    final int size = slabSizes[id];
+    for (int i = offset; i < offset + size; ++i) {
+      if (arenaHashes[i] == hash && equal(arenaValues[i], value)) {
+        ++arenaCounts[i];
+        return;
+      }
+    }
+    if (size == INLINE_LIMIT) {
+      promote(id);
+      addToTable(-slabOffsets[id] - 1, value);
+      return;
+    }
+    if (size == 1 << slabClasses[id]) {
+      moveToLargerSlab(id);
+    }
+    final int index = slabOffsets[id] + size;
+    arenaValues[index] = value;
+    arenaHashes[index] = hash;
+    arenaCounts[index] = 1;
+    ++slabSizes[id];
+  }
+
+  /**
+   * Gets the number of counted values.
+   *
+   * @return Number of values counted so far in all groups.
+   */
+  public long valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the number of groups.
+   *
+   * @return Number of groups having at least one value.
+   */
+  public int groupCount() {
+    return groupCount;
+  }
+
+  /**
+   * Builds the top list of the group.
+   *
+   * @param group Group. Nullable.
+   * @param size  The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values of the group, exact unless the group has more unique values than the
+   * limit of values per group. Empty list if the group has no values.
+   */
+  public BoundedTopList top(String group, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final int id = groupIds.get(group) - 1;
+    if (id < 0) {
+      return BoundedTopList.of(Collections.<FrequencyAnalyzer.Item>emptyList(), 0);
+    }
+    final int offset = slabOffsets[id];
+    if (offset < 0) {
+      return BoundedTopList.of(tables.get(-offset - 1).top(size), tableMaxErrors[-offset - 1]);
+    }
+    final List<FrequencyAnalyzer.Item> items = new ArrayList<FrequencyAnalyzer.Item>(slabSizes[id]);
+    for (int i = offset; i < offset + slabSizes[id]; ++i) {
+      items.add(Items.newItem(arenaValues[i], arenaCounts[i]));
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return BoundedTopList.of(items.subList(0, Math.min(size, items.size())), 0);
+  }
+
+  /**
+   * Builds the list of the groups having the most values.
+   *
+   * @param size The maximum size of the list to be built. Must be >= 0.
+   * @return List of groups (as values of items) with the numbers of their values (as frequencies of items) in the order
+   * of frequencies (descending), then groups (ascending).
+   */
+  public List<FrequencyAnalyzer.Item> topGroups(int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    // The head of the queue is the worst of the selected groups
+    final PriorityQueue<FrequencyAnalyzer.Item> selected = new PriorityQueue<FrequencyAnalyzer.Item>(size,
+        Collections.reverseOrder(Items.FREQUENCY_ORDER));
+    for (int id = 0; id < groupCount; ++id) {
+      if (selected.size() < size) {
+        selected.add(Items.newItem(groupNames[id], groupTotals[id]));
+      } else if (Items.compare(groupTotals[id], groupNames[id], selected.peek().frequency(),
+          selected.peek().value()) < 0) {
+        selected.poll();
+        selected.add(Items.newItem(groupNames[id], groupTotals[id]));
+      }
+    }
+    final List<FrequencyAnalyzer.Item> items = new ArrayList<FrequencyAnalyzer.Item>(selected);
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return items;
+  }
+
+  private int newGroup(String group) {
+    if (groupCount == groupNames.length) {
+      final int capacity = groupCount << 1;
+      groupNames = Arrays.copyOf(groupNames, capacity);
+      groupTotals = Arrays.copyOf(groupTotals, capacity);
+      slabOffsets = Arrays.copyOf(slabOffsets, capacity);
+      slabClasses = Arrays.copyOf(slabClasses, capacity);
+      slabSizes = Arrays.copyOf(slabSizes, capacity);
+    }
+    final int id = groupCount++;
+    groupIds.add(group, id + 1);
+    groupNames[id] = group;
+    slabOffsets[id] = allocateSlab(0);
+    return id;
+  }
+
+  private void addToTable(int index, String value) {
+    final StringCountTable table = tables.get(index);
+    if (maxValuesPerGroup == 0) {
+      table.add(value);
+    } else if (!table.increment(value)) {
+      if (table.size() < maxValuesPerGroup) {
+        table.add(value);
+      } else {
+        tableMaxErrors[index] += table.subtractMinimum();
+      }
+    }
+  }
+
+  /**
+   * Moves values of the group from its slab to its own table.
+   */
+  private void promote(int id) {
+    final int offset = slabOffsets[id];
+    final StringCountTable table = new StringCountTable(2 * INLINE_LIMIT);
+    for (int i = offset; i < offset + slabSizes[id]; ++i) {
+      table.add(arenaValues[i], arenaCounts[i]);
+    }
+    freeSlab(offset, slabClasses[id]);
+    if (tables.size() == tableMaxErrors.length) {
+      tableMaxErrors = Arrays.copyOf(tableMaxErrors, tables.size() << 1);
+    }
+    tables.add(table);
+    slabOffsets[id] = -tables.size();
+    slabSizes[id] = 0;
+  }
+
+  private void moveToLargerSlab(int id) {
+    final int offset = slabOffsets[id];
+    final int newOffset = allocateSlab(slabClasses[id] + 1);
+    System.arraycopy(arenaValues, offset, arenaValues, newOffset, slabSizes[id]);
+    System.arraycopy(arenaHashes, offset, arenaHashes, newOffset, slabSizes[id]);
+    System.arraycopy(arenaCounts, offset, arenaCounts, newOffset, slabSizes[id]);
+    freeSlab(offset, slabClasses[id]);
+    slabOffsets[id] = newOffset;
+    ++slabClasses[id];
+  }
+
+  private int allocateSlab(int slabClass) {
+    final int free = freeSlabs[slabClass];
+    if (free != NO_SLAB) {
+      freeSlabs[slabClass] = arenaCounts[free];
+      return free;
+    }
+    final int capacity = 1 << slabClass;
+    if (arenaSize + capacity > arenaValues.length) {
+      final int arenaCapacity = Math.max(arenaValues.length << 1, arenaSize + capacity);
+      arenaValues = Arrays.copyOf(arenaValues, arenaCapacity);
+      arenaHashes = Arrays.copyOf(arenaHashes, arenaCapacity);
+      arenaCounts = Arrays.copyOf(arenaCounts, arenaCapacity);
+    }
+    final int offset = arenaSize;
+    arenaSize += capacity;
+    return offset;
+  }
+
+  private void freeSlab(int offset, int slabClass) {
+    // Values are released to not retain them
+    Arrays.fill(arenaValues, offset, offset + (1 << slabClass), null);
+    arenaCounts[offset] = freeSlabs[slabClass];
+    freeSlabs[slabClass] = offset;
+  }
+
+  private static boolean equal(String left, String right) {
+    return left == right || (left != null && left.equals(right));
+  }
+}
@@ -0,0 +1,24 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Unkeyed mixing functions for hashing and seeding, see {@link KeyedHash} for hashing of untrusted values.
+ */
+public final class Hashing {
+
+  private Hashing() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Mixes bits of the value with the finalizer of SplitMix64 (variant 13 of Stafford's mixers): each bit of the input
+   * affects each bit of the output with probability close to 1/2, and the function is a bijection.
+   *
+   * @param z Value to mix.
+   * @return Mixed value.
+   */
+  public static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
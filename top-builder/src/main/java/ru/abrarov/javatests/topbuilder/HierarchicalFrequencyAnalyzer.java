@@ -0,0 +1,164 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Analyzer of hierarchical values (paths, {@code tenant/service/operation} identifiers) building top lists of prefixes
+ * of values at several levels of hierarchy in one pass. A level is either the prefix of the given length (a value
+ * shorter than the length is its own prefix) or the prefix preceding the given occurrence of the delimiter (a value
+ * with fewer delimiters is its own prefix), e.g. levels 1 and 2 of {@code a/b/c} with delimiter {@code /} are
+ * {@code a} and {@code a/b}.
+ * <p>
+ * Each value is scanned once: hash code of the prefix of the next level continues the hash code of the previous level,
+ * and the prefix is looked up in {@link StringCountTable} of its level in place, i.e. strings of prefixes are created
+ * only for the unique prefixes, not for each value.
+ * <p>
+ * Prefixes are counted exactly by default, so memory consumption grows with the number of unique prefixes. The
+ * approximate analyzer (see {@link #approximate}) limits the number of counters per level and counts each level with
+ * Misra-Gries algorithm in place: a prefix missing in the full table causes subtraction of the minimum count from all
+ * counters of the level, see {@link BudgetedFrequencyAnalyzer}. Each level is a separate summary of heavy hitters, so
+ * counts of prefixes include counts of their descendants.
+ *
+ * @see BoundedTopList
+ */
+public class HierarchicalFrequencyAnalyzer {
+
+  private static final int HASH_MULTIPLIER = 31;
+
+  private final int[] levels;
+  private final boolean delimited;
+  private final char delimiter;
+  private final int countersPerLevel;
+
+  private HierarchicalFrequencyAnalyzer(int[] levels, boolean delimited, char delimiter, int countersPerLevel) {
+    assert levels.length > 0 : "levels must not be empty";
+    for (int i = 0; i < levels.length; ++i) {
+      assert levels[i] > 0 : "levels must be > 0";
+      assert i == 0 || levels[i] > levels[i - 1] : "levels must be in ascending order";
+    }
+
+    this.levels = levels;
+    this.delimited = delimited;
+    this.delimiter = delimiter;
+    this.countersPerLevel = countersPerLevel;
+  }
+
+  /**
+   * Creates exact analyzer of prefixes of the given lengths.
+   *
+   * @param lengths Lengths of prefixes. Must not be empty, must be > 0 and in ascending order.
+   * @return Analyzer.
+   */
+  public static HierarchicalFrequencyAnalyzer byPrefixLengths(int... lengths) {
+    return new HierarchicalFrequencyAnalyzer(lengths.clone(), false, '\0', 0);
+  }
+
+  /**
+   * Creates exact analyzer of prefixes preceding the given occurrences of the delimiter.
+   *
+   * @param delimiter Delimiter of levels.
+   * @param levels    Levels, i.e. numbers of occurrences of the delimiter (1-based) ending prefixes. Must not be empty,
+   *                  must be > 0 and in ascending order.
+   * @return Analyzer.
+   */
+  public static HierarchicalFrequencyAnalyzer byDelimiter(char delimiter, int... levels) {
+    return new HierarchicalFrequencyAnalyzer(levels.clone(), true, delimiter, 0);
+  }
+
+  /**
+   * Creates approximate analyzer of the same levels with the limited number of counters per level.
+   *
+   * @param countersPerLevel The maximum number of counters per level. Must be > 0. The maximum error of each level is
+   *                         not greater than n / countersPerLevel where n is the number of values.
+   * @return Analyzer.
+   */
+  public HierarchicalFrequencyAnalyzer approximate(int countersPerLevel) {
+    assert countersPerLevel > 0 : "countersPerLevel must be > 0";
+
+    return new HierarchicalFrequencyAnalyzer(levels, delimited, delimiter, countersPerLevel);
+  }
+
+  /**
+   * Builds lists of the most frequent prefixes of values per level.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted and counted as null prefixes at
+   *               each level.
+   * @param size   The maximum size of each list to be built. Must be >= 0.
+   * @return Lists of the most frequent prefixes in the order of levels. Lists are exact if the analyzer is exact.
+   */
+  public List<BoundedTopList> analyze(Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final StringCountTable[] tables = new StringCountTable[levels.length];
+    for (int i = 0; i < tables.length; ++i) {
+      tables[i] = countersPerLevel > 0 ? new StringCountTable(countersPerLevel) : new StringCountTable();
+    }
+    final int[] maxErrors = new int[levels.length];
+    while (values.hasNext()) {
+      final String value = values.next();
+      if (value == null) {
+        for (int i = 0; i < tables.length; ++i) {
+          if (!tables[i].increment(null)) {
+            insertOrSubtract(tables, maxErrors, i, null, 0, 0);
+          }
+        }
+        continue;
+      }
+      final int length = value.length();
+      int position = 0;
+      int hash = 0;
+      int delimiters = 0;
+      for (int i = 0; i < tables.length; ++i) {
+        final int end;
+        if (delimited) {
+          while (position < length) {
+            final char c = value.charAt(position);
+            if (c == delimiter) {
+              if (delimiters + 1 == levels[i]) {
+                break;
+              }
+              ++delimiters;
+            }
+            hash = HASH_MULTIPLIER * hash + c;
+            ++position;
+          }
+          end = position;
+        } else {
+          end = Math.min(levels[i], length);
+          while (position < end) {
+            hash = HASH_MULTIPLIER * hash + value.charAt(position++);
+          }
+        }
+        if (countersPerLevel == 0) {
+          tables[i].addPrefix(value, end, hash);
+        } else if (!tables[i].incrementPrefix(value, end, hash)) {
+          insertOrSubtract(tables, maxErrors, i, value, end, hash);
+        }
+      }
+    }
+
+    final List<BoundedTopList> topLists = new ArrayList<BoundedTopList>(tables.length);
+    for (int i = 0; i < tables.length; ++i) {
+      topLists.add(BoundedTopList.of(tables[i].top(size), maxErrors[i]));
+    }
+    return Collections.unmodifiableList(topLists);
+  }
+
+  /**
+   * Counts the prefix missing in the table of the level or subtracts the minimum count if the table is full.
+   */
+  private void insertOrSubtract(StringCountTable[] tables, int[] maxErrors, int level, String value, int end,
+      int hash) {
+    final StringCountTable table = tables[level];
+    if (countersPerLevel > 0 && table.size() >= countersPerLevel) {
+      maxErrors[level] += table.subtractMinimum();
+    } else if (value == null) {
+      table.add(null);
+    } else {
+      table.addPrefix(value, end, hash);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counter of values arriving over time (e.g. lines appended to a followed file, see
+ * {@link ru.abrarov.javatests.topbuilder.io.FileTail}) which maintains the top list of the given size incrementally.
+ * <p>
+ * Counts only grow, so a value which isn't in the previous top list and wasn't counted since then is still behind all
+ * values of the previous top list. Hence the new top list is selected from the previous top list and the values
+ * counted since the previous refresh only, and the refresh takes time proportional to the number of values counted
+ * since the previous refresh, not to the number of unique values. If more values than unique values are counted since
+ * the previous refresh then the top list is selected from all values instead.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class IncrementalFrequencyCounter {
+
+  private final StringCountTable table = new StringCountTable();
+  private final int topListSize;
+  private final TopListCandidates candidates = new TopListCandidates();
+  private List<FrequencyAnalyzer.Item> topList = Collections.emptyList();
+  private long valueCount;
+
+  /**
+   * Creates counter.
+   *
+   * @param topListSize The maximum size of the top list. Must be >= 0.
+   */
+  public IncrementalFrequencyCounter(int topListSize) {
+    assert topListSize >= 0 : "Size of the list must be >= 0";
+
+    this.topListSize = topListSize;
+  }
+
+  /**
+   * Counts the value.
+   *
+   * @param value Value to count. Nullable.
+   */
+  public void add(String value) {
+    table.add(value);
+    ++valueCount;
+    candidates.counted(value, table.size());
+  }
+
+  /**
+   * Counts the values.
+   *
+   * @param values Values to count. Null values are permitted.
+   */
+  public void addAll(List<String> values) {
+    for (String value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * Gets the number of counted values.
+   *
+   * @return Number of values counted so far.
+   */
+  public long valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the top list of the values counted so far.
+   *
+   * @return List of the most frequent values ordered by frequencies (descending), then by values (ascending).
+   */
+  public List<FrequencyAnalyzer.Item> topFrequentList() {
+    if (!candidates.isChanged()) {
+      return topList;
+    }
+    topList = Collections.unmodifiableList(candidates.isRefreshFromAll() ? table.top(topListSize) : selectTop());
+    final List<String> values = new ArrayList<String>(topList.size());
+    for (FrequencyAnalyzer.Item item : topList) {
+      values.add(item.value());
+    }
+    candidates.refreshed(values);
+    return topList;
+  }
+
+  private List<FrequencyAnalyzer.Item> selectTop() {
+    final List<FrequencyAnalyzer.Item> items = new ArrayList<FrequencyAnalyzer.Item>();
+    for (String value : candidates.values()) {
+      items.add(Items.newItem(value, table.get(value)));
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return new ArrayList<FrequencyAnalyzer.Item>(items.subList(0, Math.min(topListSize, items.size())));
+  }
+}
@@ -0,0 +1,167 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Profile of analyzed values estimated on a sample of values: the number of distinct values, skew, collisions of hash
+ * codes and sharing of String instances by repeated values.
+ *
+ * @see AdaptiveFrequencyAnalyzer
+ * @see SelectionPolicy
+ */
+public final class InputProfile {
+
+  private final int sampleSize;
+  private final int distinctCount;
+  private final int singletonCount;
+  private final int doubletonCount;
+  private final int topCount;
+  private final int distinctHashCodeCount;
+  private final int sharedRepeatCount;
+  private final boolean complete;
+
+  InputProfile(int sampleSize, int distinctCount, int singletonCount, int doubletonCount, int topCount,
+               int distinctHashCodeCount, int sharedRepeatCount, boolean complete) {
+    this.sampleSize = sampleSize;
+    this.distinctCount = distinctCount;
+    this.singletonCount = singletonCount;
+    this.doubletonCount = doubletonCount;
+    this.topCount = topCount;
+    this.distinctHashCodeCount = distinctHashCodeCount;
+    this.sharedRepeatCount = sharedRepeatCount;
+    this.complete = complete;
+  }
+
+  /**
+   * Builds profile of the sample.
+   *
+   * @param sample            Distinct values of the sample with their frequencies.
+   * @param sharedRepeatCount Number of the repeated values of the sample which are the same instances as the first
+   *                          occurrences of the values.
+   * @param complete          True if the sample contains all values.
+   * @return Profile of the sample.
+   */
+  static InputProfile of(Collection<? extends FrequencyAnalyzer.Item> sample, int sharedRepeatCount,
+                         boolean complete) {
+    int sampleSize = 0;
+    int singletonCount = 0;
+    int doubletonCount = 0;
+    int topCount = 0;
+    final int[] hashCodes = new int[sample.size()];
+    int index = 0;
+    for (FrequencyAnalyzer.Item item : sample) {
+      hashCodes[index++] = item.value() == null ? 0 : item.value().hashCode();
+      final int frequency = item.frequency();
+      sampleSize += frequency;
+      if (frequency == 1) {
+        ++singletonCount;
+      } else if (frequency == 2) {
+        ++doubletonCount;
+      }
+      topCount = Math.max(topCount, frequency);
+    }
+    Arrays.sort(hashCodes);
+    int distinctHashCodeCount = 0;
+    for (int i = 0; i < hashCodes.length; ++i) {
+      if (i == 0 || hashCodes[i] != hashCodes[i - 1]) {
+        ++distinctHashCodeCount;
+      }
+    }
+    return new InputProfile(sampleSize, sample.size(), singletonCount, doubletonCount, topCount,
+        distinctHashCodeCount, sharedRepeatCount, complete);
+  }
+
+  /**
+   * Gets the size of the sample.
+   *
+   * @return Number of values in the sample.
+   */
+  public int sampleSize() {
+    return sampleSize;
+  }
+
+  /**
+   * Gets the number of distinct values in the sample.
+   *
+   * @return Number of distinct values in the sample including null.
+   */
+  public int distinctCount() {
+    return distinctCount;
+  }
+
+  /**
+   * Gets ratio of distinct values in the sample. Close to 1 means that nearly all values are unique, close to 0 means
+   * that the sample is saturated, i.e. there are few distinct values which repeat many times.
+   *
+   * @return Ratio of the number of distinct values to the sample size, 0 for empty sample.
+   */
+  public double distinctRatio() {
+    return sampleSize == 0 ? 0 : (double) distinctCount / sampleSize;
+  }
+
+  /**
+   * Estimates the number of distinct values of the whole input with bias-corrected Chao1 estimator: values met once in
+   * the sample indicate values not met at all, so the estimate is d + f1 * (f1 - 1) / (2 * (f2 + 1)) where d is the
+   * number of distinct values in the sample, f1 and f2 are the numbers of values met once and twice. It's a lower
+   * bound which is close for saturated samples and grows quickly when most values are met once.
+   *
+   * @return Estimated number of distinct values, exact for the complete sample.
+   */
+  public long estimatedDistinctCount() {
+    if (complete) {
+      return distinctCount;
+    }
+    return distinctCount + (long) singletonCount * (singletonCount - 1) / (2 * (doubletonCount + 1));
+  }
+
+  /**
+   * Gets share of the most frequent value in the sample as a measure of skew.
+   *
+   * @return Ratio of the frequency of the most frequent value to the sample size, 0 for empty sample.
+   */
+  public double topShare() {
+    return sampleSize == 0 ? 0 : (double) topCount / sampleSize;
+  }
+
+  /**
+   * Gets the number of distinct hash codes ({@link String#hashCode()}, 0 for null) of distinct values in the sample.
+   * Random values rarely collide, so the number much less than {@link #distinctCount()} means values crafted to
+   * collide (hash flooding).
+   *
+   * @return Number of distinct hash codes in the sample.
+   */
+  public int distinctHashCodeCount() {
+    return distinctHashCodeCount;
+  }
+
+  /**
+   * Gets share of the repeated values of the sample which are the same String instances as the first occurrences of
+   * the values, like values decoded once and passed many times. Repeated instances have cached hash codes and are
+   * compared by reference, while distinct instances (like values decoded one by one) are hashed and compared by
+   * contents on each access.
+   *
+   * @return Ratio of the number of repeated values sharing the instance to the number of repeated values, 0 if no value
+   * is repeated in the sample.
+   */
+  public double sharedRepeatShare() {
+    final int repeatCount = sampleSize - distinctCount;
+    return repeatCount == 0 ? 0 : (double) sharedRepeatCount / repeatCount;
+  }
+
+  /**
+   * Checks if the sample contains all values, i.e. the profile is exact.
+   *
+   * @return True if there are no values beyond the sample.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("sample size: %d%s, distinct: %d (ratio %.3f, estimated total %d, hash codes %d), "
+        + "top share: %.3f, shared repeats: %.3f", sampleSize, complete ? " (complete)" : "", distinctCount,
+        distinctRatio(), estimatedDistinctCount(), distinctHashCodeCount, topShare(), sharedRepeatShare());
+  }
+}
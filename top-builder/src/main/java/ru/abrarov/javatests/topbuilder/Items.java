@@ -0,0 +1,259 @@
+package ru.abrarov.javatests.topbuilder;
+
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer.Item;
+
+import java.util.Comparator;
+
+/**
+ * Helpers shared by implementations of {@link FrequencyAnalyzer} and related classes.
+ */
+final class Items {
+
+  /**
+   * Order of the top list: descending frequency, then ascending value (null goes first) to make results of algorithms
+   * predictable.
+   */
+  static final Comparator<Item> FREQUENCY_ORDER = new Comparator<Item>() {
+    @Override
+    public int compare(Item left, Item right) {
+      return Items.compare(left.frequency(), left.value(), right.frequency(), right.value());
+    }
+  };
+
+  /**
+   * Order of the top list of scored items: descending score, then ascending value (null goes first).
+   */
+  static final Comparator<ScoredItem> SCORE_ORDER = new Comparator<ScoredItem>() {
+    @Override
+    public int compare(ScoredItem left, ScoredItem right) {
+      return Items.compare(left.score(), left.value(), right.score(), right.value());
+    }
+  };
+
+  private Items() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Compares two (value, frequency) pairs in the order defined by {@link #FREQUENCY_ORDER}. Allows to compare without
+   * creation of {@link Item} instances.
+   *
+   * @param leftFrequency  Frequency of the left value.
+   * @param leftValue      Left value. Nullable.
+   * @param rightFrequency Frequency of the right value.
+   * @param rightValue     Right value. Nullable.
+   * @return Negative integer, zero, or a positive integer as the left pair goes before, is equal to, or goes after the
+   * right pair.
+   */
+  static int compare(long leftFrequency, String leftValue, long rightFrequency, String rightValue) {
+    if (leftFrequency > rightFrequency) {
+      return -1;
+    }
+    if (leftFrequency < rightFrequency) {
+      return 1;
+    }
+    return compareValues(leftValue, rightValue);
+  }
+
+  /**
+   * Compares two (value, score) pairs in the order defined by {@link #SCORE_ORDER}.
+   *
+   * @param leftScore  Score of the left value.
+   * @param leftValue  Left value. Nullable.
+   * @param rightScore Score of the right value.
+   * @param rightValue Right value. Nullable.
+   * @return Negative integer, zero, or a positive integer as the left pair goes before, is equal to, or goes after the
+   * right pair.
+   */
+  static int compare(double leftScore, String leftValue, double rightScore, String rightValue) {
+    if (leftScore > rightScore) {
+      return -1;
+    }
+    if (leftScore < rightScore) {
+      return 1;
+    }
+    return compareValues(leftValue, rightValue);
+  }
+
+  /**
+   * Compares values in the order used for items having equal frequencies.
+   *
+   * @param leftValue  Left value. Nullable.
+   * @param rightValue Right value. Nullable.
+   * @return Negative integer, zero, or a positive integer as the left value goes before, is equal to, or goes after the
+   * right value.
+   */
+  static int compareValues(String leftValue, String rightValue) {
+    if (leftValue == rightValue) {
+      return 0;
+    }
+    if (leftValue == null) {
+      return -1;
+    }
+    if (rightValue == null) {
+      return 1;
+    }
+    return leftValue.compareTo(rightValue);
+  }
+
+  /**
+   * Creates immutable item.
+   *
+   * @param value     Value of the item. Nullable.
+   * @param frequency Frequency of the value.
+   * @return Immutable item.
+   */
+  static Item newItem(String value, int frequency) {
+    return new ImmutableItem(value, frequency);
+  }
+
+  /**
+   * Creates immutable approximate item. Its frequency is the lower bound.
+   *
+   * @param value      Value of the item. Nullable.
+   * @param lowerBound The minimum possible frequency of the value.
+   * @param upperBound The maximum possible frequency of the value.
+   * @return Immutable approximate item.
+   */
+  static ApproximateItem newApproximateItem(String value, int lowerBound, int upperBound) {
+    return new ImmutableApproximateItem(value, lowerBound, upperBound);
+  }
+
+  /**
+   * Creates immutable estimated item.
+   *
+   * @param value            Value of the item. Nullable.
+   * @param frequency        Estimated frequency of the value.
+   * @param sampledFrequency Frequency of the value in the sample.
+   * @param lowerBound       The lower bound of the confidence interval of frequency.
+   * @param upperBound       The upper bound of the confidence interval of frequency.
+   * @return Immutable estimated item.
+   */
+  static EstimatedItem newEstimatedItem(String value, int frequency, int sampledFrequency, int lowerBound,
+                                        int upperBound) {
+    return new ImmutableEstimatedItem(value, frequency, sampledFrequency, lowerBound, upperBound);
+  }
+
+  /**
+   * Creates immutable scored item.
+   *
+   * @param value Value of the item. Nullable.
+   * @param score Score of the value.
+   * @return Immutable scored item.
+   */
+  static ScoredItem newScoredItem(String value, double score) {
+    return new ImmutableScoredItem(value, score);
+  }
+
+  private static class ImmutableScoredItem implements ScoredItem {
+
+    private final String value;
+    private final double score;
+
+    public ImmutableScoredItem(String value, double score) {
+      this.value = value;
+      this.score = score;
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+
+    @Override
+    public double score() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Score: %.3f. Value: %s", score, value);
+    }
+  }
+
+  private static class ImmutableEstimatedItem extends ImmutableItem implements EstimatedItem {
+
+    private final int sampledFrequency;
+    private final int lowerBound;
+    private final int upperBound;
+
+    public ImmutableEstimatedItem(String value, int frequency, int sampledFrequency, int lowerBound,
+                                  int upperBound) {
+      super(value, frequency);
+      this.sampledFrequency = sampledFrequency;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+
+    @Override
+    public int sampledFrequency() {
+      return sampledFrequency;
+    }
+
+    @Override
+    public int lowerBound() {
+      return lowerBound;
+    }
+
+    @Override
+    public int upperBound() {
+      return upperBound;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Frequency: %d [%d; %d]. Value: %s", frequency(), lowerBound, upperBound, value());
+    }
+  }
+
+  private static class ImmutableApproximateItem extends ImmutableItem implements ApproximateItem {
+
+    private final int upperBound;
+
+    public ImmutableApproximateItem(String value, int lowerBound, int upperBound) {
+      super(value, lowerBound);
+      this.upperBound = upperBound;
+    }
+
+    @Override
+    public int lowerBound() {
+      return frequency();
+    }
+
+    @Override
+    public int upperBound() {
+      return upperBound;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Frequency: [%d; %d]. Value: %s", frequency(), upperBound, value());
+    }
+  }
+
+  private static class ImmutableItem implements Item {
+
+    private final String value;
+    private final int frequency;
+
+    public ImmutableItem(String value, int frequency) {
+      this.value = value;
+      this.frequency = frequency;
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+
+    @Override
+    public int frequency() {
+      return frequency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Frequency: %d. Value: %s", frequency, value);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.security.SecureRandom;
+
+/**
+ * Keyed hash of strings in the style of wyhash: UTF-16 characters are read by 64-bit words (4 characters per word) and
+ * each word is mixed with the key and the running hash of its lane by 64x64 -> 128-bit multiplication folded to 64
+ * bits. Unlike {@link String#hashCode()}, collisions cannot be crafted without knowledge of the random key, so tables
+ * hashed with a random key are not degraded by crafted values (hash flooding). It isn't a cryptographic function like
+ * SipHash, but it takes one multiplication per 4 characters in two independent lanes, so it costs about as much as
+ * the first computation of {@link String#hashCode()}. Unlike {@link String#hashCode()}, it isn't cached by the string.
+ */
+final class KeyedHash {
+
+  private KeyedHash() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Generates random half of a key.
+   *
+   * @return Random 64 bits.
+   */
+  static long newKey() {
+    return SeedHolder.RANDOM.nextLong();
+  }
+
+  /**
+   * Hashes the prefix of the string.
+   *
+   * @param k0     The first half of the key.
+   * @param k1     The second half of the key.
+   * @param value  String to hash. Not null.
+   * @param length Length of the hashed prefix. Must be in [0; value.length()].
+   * @return Hash of the prefix folded to 32 bits.
+   */
+  static int hash(long k0, long k1, String value, int length) {
+    // Two independent lanes of 4 characters each, so the multiplications of a step don't wait for each other
+    long first = 0;
+    long second = 0;
+    if (length >= 8) {
+      for (int i = 0, end = length - 8; i < end; i += 8) {
+        first = mix(word(value, i) ^ k1, first ^ k0);
+        second = mix(word(value, i + 4) ^ k0, second ^ k1);
+      }
+      // The last 8 characters, overlapping the ones mixed above unless the length is a multiple of 8
+      first ^= word(value, length - 8);
+      second ^= word(value, length - 4);
+    } else {
+      for (int i = 0; i < length; ++i) {
+        if (i < 4) {
+          first ^= (long) value.charAt(i) << (i << 4);
+        } else {
+          second ^= (long) value.charAt(i) << ((i - 4) << 4);
+        }
+      }
+    }
+    // The length distinguishes trailing zero characters of short strings and overlapping tails
+    final long hash = mix(k1 ^ length, mix(first ^ k1, second ^ k0));
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  private static long word(String value, int start) {
+    return value.charAt(start) | (long) value.charAt(start + 1) << 16 | (long) value.charAt(start + 2) << 32
+        | (long) value.charAt(start + 3) << 48;
+  }
+
+  /**
+   * Multiplies 64-bit numbers and folds the 128-bit product to 64 bits.
+   */
+  private static long mix(long left, long right) {
+    return left * right ^ Math.multiplyHigh(left, right);
+  }
+
+  /**
+   * Source of random keys, initialized on the first use only.
+   */
+  private static final class SeedHolder {
+    static final SecureRandom RANDOM = new SecureRandom();
+  }
+}
@@ -0,0 +1,56 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Estimates of sizes of objects on heap of 64-bit HotSpot JVM with compressed references (default for heap up to 32
+ * GB) and 8 bytes alignment of objects. Strings are compact (Latin-1 strings take 1 byte per character) since Java 9.
+ */
+final class MemoryEstimates {
+
+  static final int REFERENCE_SIZE = 4;
+
+  private static final int OBJECT_ALIGNMENT = 8;
+  private static final int ARRAY_HEADER_SIZE = 16;
+  /**
+   * Header and fields of java.lang.String (excluding its array of characters).
+   */
+  private static final int STRING_SHALLOW_SIZE = 24;
+  private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+
+  private MemoryEstimates() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Estimates size of array.
+   *
+   * @param length      Length of array.
+   * @param elementSize Size of array element in bytes.
+   * @return Estimated size of array in bytes.
+   */
+  static long arraySize(long length, int elementSize) {
+    return align(ARRAY_HEADER_SIZE + length * elementSize);
+  }
+
+  /**
+   * Estimates size of string including its array of characters.
+   *
+   * @param value String to estimate.
+   * @return Estimated size of string in bytes.
+   */
+  static long stringSize(String value) {
+    return STRING_SHALLOW_SIZE + arraySize(value.length(), COMPACT_STRINGS && isLatin1(value) ? 1 : 2);
+  }
+
+  private static boolean isLatin1(String value) {
+    for (int i = 0; i < value.length(); ++i) {
+      if (value.charAt(i) > 0xff) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long align(long size) {
+    return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+  }
+}
@@ -13,35 +13,7 @@ import java.util.*;
  *
  * @see FrequencyAnalyzer
  */
-public class NaiveFrequencyAnalyzer implements FrequencyAnalyzer {
-
-  private static final Comparator<Item> DISTRIBUTION_ITEM_COMPARATOR = new Comparator<Item>() {
-    @Override
-    public int compare(Item left, Item right) {
-      final int leftFrequency = left.frequency();
-      final int rightFrequency = right.frequency();
-      if (leftFrequency > rightFrequency) {
-        return -1;
-      }
-      if (leftFrequency < rightFrequency) {
-        return 1;
-      }
-      // If frequencies are equal then compare values to make results of
-      // algorithm predictable
-      final String leftValue = left.value();
-      final String rightValue = right.value();
-      if (leftValue == rightValue) {
-        return 0;
-      }
-      if (leftValue == null) {
-        return -1;
-      }
-      if (rightValue == null) {
-        return 1;
-      }
-      return leftValue.compareTo(rightValue);
-    }
-  };
+public class NaiveFrequencyAnalyzer implements SplitInputFrequencyAnalyzer {
 
   @Override
   public List<Item> buildTopFrequentList(Iterator<String> values, int size) {
@@ -53,6 +25,28 @@ public class NaiveFrequencyAnalyzer implements FrequencyAnalyzer {
     return findTopFrequentItems(buildDistributionMap(values).values(), size);
   }
 
+  @Override
+  public List<Item> buildTopFrequentList(Map<String, Item> head, Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    // The head is continued in place
+    return findTopFrequentItems(countAll(head, values).values(), size);
+  }
+
+  /**
+   * Builds distribution of the given values which can be queried many times (top lists of different sizes, frequency
+   * and rank of the particular value, etc) without recounting of the values.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted.
+   * @return Distribution of the given values.
+   */
+  public FrequencyDistribution buildDistribution(Iterator<String> values) {
+    return new FrequencyDistribution(buildDistributionMap(values));
+  }
+
   private static class DistributionItem implements Item {
 
     private final String value;
@@ -88,19 +82,65 @@ public class NaiveFrequencyAnalyzer implements FrequencyAnalyzer {
    * @return Map of values distribution.
    */
   private Map<String, Item> buildDistributionMap(Iterator<String> values) {
-    final Map<String, Item> distribution = new HashMap<String, Item>();
-    while (values.hasNext()) {
+    return countAll(new HashMap<String, Item>(), values);
+  }
+
+  /**
+   * Counts the first values in the distribution map which can be continued by {@link SplitInputFrequencyAnalyzer}
+   * implementations. Values are counted the same way as by the analyzer, so continuation by the analyzer doesn't
+   * differ from analysis of all values.
+   *
+   * @param distribution Empty map to count the values in.
+   * @param values       Values to be analyzed. Nulls as values of iterator are permitted.
+   * @param limit        The maximum number of values to count. Must be >= 0.
+   * @return Number of the repeated values which are the same instances as the first occurrences of the values (see
+   * {@link InputProfile#sharedRepeatShare()}).
+   */
+  static int countHead(Map<String, Item> distribution, Iterator<String> values, int limit) {
+    assert limit >= 0 : "limit must be >= 0";
+
+    int sharedRepeatCount = 0;
+    for (int i = 0; i < limit && values.hasNext(); ++i) {
       final String value = values.next();
-      final DistributionItem item = (DistributionItem) distribution.get(value);
-      if (item == null) {
-        distribution.put(value, new DistributionItem(value));
-      } else {
-        item.incFrequency();
+      final Item repeated = count(distribution, value);
+      if (repeated != null && repeated.value() == value) {
+        ++sharedRepeatCount;
       }
     }
+    return sharedRepeatCount;
+  }
+
+  /**
+   * Counts the given values in the distribution map.
+   *
+   * @param distribution Map of values distribution.
+   * @param values       Values to be analyzed. Nulls as values of iterator are permitted.
+   * @return The given map.
+   */
+  private static Map<String, Item> countAll(Map<String, Item> distribution, Iterator<String> values) {
+    while (values.hasNext()) {
+      count(distribution, values.next());
+    }
     return distribution;
   }
 
+  /**
+   * Counts the value in the distribution map.
+   *
+   * @param distribution Map of values distribution.
+   * @param value        Value to be counted. Nullable.
+   * @return Item of the value if the value was met before, null otherwise.
+   */
+  private static Item count(Map<String, Item> distribution, String value) {
+    final DistributionItem item = (DistributionItem) distribution.get(value);
+    if (item == null) {
+      distribution.put(value, new DistributionItem(value));
+    } else {
+      item.incFrequency();
+    }
+    return item;
+  }
+
   /**
    * Finds items of the given distribution having max frequency.
    *
@@ -109,7 +149,7 @@ public class NaiveFrequencyAnalyzer implements FrequencyAnalyzer {
    * @return List of items of the given distribution having max frequency.
    */
   private List<Item> findTopFrequentItems(Collection<Item> distribution, int count) {
-    return CollectionUtils.partialSorted(distribution, count, DISTRIBUTION_ITEM_COMPARATOR);
+    return CollectionUtils.partialSorted(distribution, count, Items.FREQUENCY_ORDER);
   }
 
 }
@@ -0,0 +1,46 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the FrequencyAnalyzer counting values in {@link StringCountTable} - open addressing hash table
+ * built of parallel arrays of keys, cached hashes and counts. Compared to {@link NaiveFrequencyAnalyzer} there are no
+ * objects per unique value (except for the values themselves), so memory consumption is about 2-3 times lower, and
+ * increment of count is a probe of arrays instead of a lookup of map entry followed by a cast and a pointer chase. The
+ * top list is selected from the arrays with a bounded heap, so the complexity of {@link #buildTopFrequentList} is
+ * o(n + u * log(size)) where u is the number of unique values.
+ *
+ * @see FrequencyAnalyzer
+ */
+public class OpenAddressingFrequencyAnalyzer implements SplitInputFrequencyAnalyzer {
+
+  @Override
+  public List<Item> buildTopFrequentList(Iterator<String> values, int size) {
+    return buildTopFrequentList(Collections.<String, Item>emptyMap(), values, size);
+  }
+
+  @Override
+  public List<Item> buildTopFrequentList(Map<String, Item> head, Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    final StringCountTable table = new StringCountTable();
+    for (Item item : head.values()) {
+      table.add(item.value(), item.frequency());
+    }
+    final String[] batch = new String[StringCountTable.BATCH_SIZE];
+    while (values.hasNext()) {
+      int count = 0;
+      do {
+        batch[count++] = values.next();
+      } while (count < batch.length && values.hasNext());
+      table.addAll(batch, count);
+    }
+    return table.top(size);
+  }
+}
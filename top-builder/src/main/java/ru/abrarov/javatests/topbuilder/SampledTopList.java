@@ -0,0 +1,85 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.List;
+
+/**
+ * Top list built from a sample of values, with confidence intervals of frequencies of its items.
+ *
+ * @see SamplingFrequencyAnalyzer
+ */
+public final class SampledTopList {
+
+  private final List<EstimatedItem> items;
+  private final double samplingRate;
+  private final double confidence;
+  private final long valueCount;
+  private final long sampledValueCount;
+  private final boolean separated;
+
+  SampledTopList(List<EstimatedItem> items, double samplingRate, double confidence, long valueCount,
+                 long sampledValueCount, boolean separated) {
+    this.items = items;
+    this.samplingRate = samplingRate;
+    this.confidence = confidence;
+    this.valueCount = valueCount;
+    this.sampledValueCount = sampledValueCount;
+    this.separated = separated;
+  }
+
+  /**
+   * Gets items of the top list ordered by their estimated frequencies (descending), then by values (ascending).
+   *
+   * @return Items of the top list.
+   */
+  public List<EstimatedItem> items() {
+    return items;
+  }
+
+  /**
+   * Gets the rate of sampling, i.e. the probability of a value to be counted.
+   *
+   * @return Sampling rate in (0; 1].
+   */
+  public double samplingRate() {
+    return samplingRate;
+  }
+
+  /**
+   * Gets confidence level of the intervals of frequencies.
+   *
+   * @return Confidence level in (0; 1).
+   */
+  public double confidence() {
+    return confidence;
+  }
+
+  /**
+   * Gets the number of analyzed values.
+   *
+   * @return Number of values, including the values not in the sample.
+   */
+  public long valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the number of values in the sample.
+   *
+   * @return Number of counted values.
+   */
+  public long sampledValueCount() {
+    return sampledValueCount;
+  }
+
+  /**
+   * Checks if the top list is statistically separated from the rest of values: the lower bound of the last item is
+   * greater than the upper bound of the most frequent value of the sample which isn't in the top list. If the top list
+   * isn't separated then its last items may be different from the exact top list, so it's worth to verify the list
+   * (see {@link SamplingFrequencyAnalyzer#verify}) with a larger size.
+   *
+   * @return True if the top list is separated or if all values of the sample are in the top list.
+   */
+  public boolean isSeparated() {
+    return separated;
+  }
+}
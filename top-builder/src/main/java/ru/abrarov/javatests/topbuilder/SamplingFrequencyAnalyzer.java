@@ -0,0 +1,209 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of the FrequencyAnalyzer counting a sample of values only, so the counting takes time proportional to
+ * the size of the sample (iteration over the skipped values remains). Frequencies are estimated as the sampled
+ * frequencies divided by the sampling rate, and are reported with normal approximation confidence intervals of the
+ * binomial distribution of sampled frequencies, see {@link #analyze}. The intervals are unreliable for the values
+ * sampled a few times.
+ * <p>
+ * Bernoulli sampling selects each value independently with the probability equal to the sampling rate: the number of
+ * values skipped before the next selected value has geometric distribution and is drawn once per selected value.
+ * Systematic sampling selects each k-th value, k = round(1 / rate), starting from a random one: it's cheaper but
+ * periodic input may bias it.
+ * <p>
+ * The top list may be verified by exact counting of its values only with another pass over re-readable input, see
+ * {@link #verify}.
+ *
+ * @see SampledTopList
+ */
+public class SamplingFrequencyAnalyzer implements FrequencyAnalyzer {
+
+  public static final double DEFAULT_CONFIDENCE = 0.95;
+
+  /**
+   * Sampling method.
+   */
+  public enum Sampling {
+    BERNOULLI, SYSTEMATIC
+  }
+
+  private static final Logger LOGGER = Logger.getLogger(SamplingFrequencyAnalyzer.class.getName());
+
+  private final double samplingRate;
+  private final Sampling sampling;
+  private final double confidence;
+  private final double z;
+  private final long seed;
+
+  /**
+   * Creates analyzer with Bernoulli sampling, {@link #DEFAULT_CONFIDENCE} confidence level and random seed.
+   *
+   * @param samplingRate Probability of a value to be counted. Must be in (0; 1].
+   */
+  public SamplingFrequencyAnalyzer(double samplingRate) {
+    this(samplingRate, Sampling.BERNOULLI, DEFAULT_CONFIDENCE, new Random().nextLong());
+  }
+
+  /**
+   * Creates analyzer.
+   *
+   * @param samplingRate Probability of a value to be counted. Must be in (0; 1].
+   * @param sampling     Sampling method.
+   * @param confidence   Confidence level of the intervals of frequencies. Must be in (0; 1).
+   * @param seed         Seed of random generator, analyses of the same values select the same sample.
+   */
+  public SamplingFrequencyAnalyzer(double samplingRate, Sampling sampling, double confidence, long seed) {
+    assert samplingRate > 0 && samplingRate <= 1 : "samplingRate must be in (0; 1]";
+    assert confidence > 0 && confidence < 1 : "confidence must be in (0; 1)";
+
+    this.samplingRate = sampling == Sampling.SYSTEMATIC ? 1.0 / Math.round(1 / samplingRate) : samplingRate;
+    this.sampling = sampling;
+    this.confidence = confidence;
+    this.z = normalQuantile((1 + confidence) / 2);
+    this.seed = seed;
+  }
+
+  @Override
+  public List<Item> buildTopFrequentList(Iterator<String> values, int size) {
+    return new ArrayList<Item>(analyze(values, size).items());
+  }
+
+  /**
+   * Builds the list of the most frequent values of the sample with estimated frequencies. Logs warning if the list
+   * isn't statistically separated from the rest of values.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted.
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values with confidence intervals of their frequencies.
+   */
+  public SampledTopList analyze(Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final StringCountTable table = new StringCountTable();
+    final Random random = new Random(seed);
+    final long step = Math.round(1 / samplingRate);
+    final double logSkipProbability = Math.log(1 - samplingRate);
+    long valueCount = 0;
+    long sampledValueCount = 0;
+    long skip = sampling == Sampling.SYSTEMATIC ? (long) (random.nextDouble() * step)
+        : nextSkip(random, logSkipProbability);
+    while (true) {
+      final long skipped = skip(values, skip);
+      valueCount += skipped;
+      if (skipped < skip || !values.hasNext()) {
+        break;
+      }
+      table.add(values.next());
+      ++valueCount;
+      ++sampledValueCount;
+      skip = sampling == Sampling.SYSTEMATIC ? step - 1 : nextSkip(random, logSkipProbability);
+    }
+
+    // The next value after the top list tells if the list is separated
+    final List<Item> top = table.top(size == Integer.MAX_VALUE ? size : size + 1);
+    final List<EstimatedItem> items = new ArrayList<EstimatedItem>(Math.min(size, top.size()));
+    for (Item item : top) {
+      items.add(estimate(item));
+    }
+    boolean separated = true;
+    if (items.size() > size) {
+      final EstimatedItem next = items.remove(size);
+      separated = size == 0 || items.get(size - 1).lowerBound() > next.upperBound();
+    }
+    if (!separated && LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.fine(String.format("Top list of %d values isn't statistically separated at %s confidence: %s", size,
+          confidence, items.get(size - 1)));
+    }
+    return new SampledTopList(Collections.unmodifiableList(items), samplingRate, confidence, valueCount,
+        sampledValueCount, separated);
+  }
+
+  /**
+   * Counts values of the top list exactly. Other values are only looked up, so the pass is cheaper than exact
+   * analysis and takes constant memory.
+   *
+   * @param values  Source values, the same as analyzed by {@link #analyze}.
+   * @param topList Top list to verify.
+   * @return Values of the top list with their exact frequencies, ordered by frequencies (descending), then by values
+   * (ascending).
+   */
+  public static List<Item> verify(Iterator<String> values, SampledTopList topList) {
+    final List<String> candidates = new ArrayList<String>(topList.items().size());
+    for (EstimatedItem item : topList.items()) {
+      candidates.add(item.value());
+    }
+    final int[] counts = StringCountTable.countCandidates(candidates, values);
+    final List<Item> items = new ArrayList<Item>(candidates.size());
+    for (int i = 0; i < counts.length; ++i) {
+      items.add(Items.newItem(candidates.get(i), counts[i]));
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return items;
+  }
+
+  private EstimatedItem estimate(Item item) {
+    final int sampledFrequency = item.frequency();
+    final double estimate = sampledFrequency / samplingRate;
+    final double error = z * Math.sqrt(sampledFrequency * (1 - samplingRate)) / samplingRate;
+    // The sampled occurrences are certain, so the lower bound isn't less than them
+    final int lowerBound = Math.max(sampledFrequency, toFrequency(Math.floor(estimate - error)));
+    return Items.newEstimatedItem(item.value(), toFrequency(Math.rint(estimate)), sampledFrequency, lowerBound,
+        toFrequency(Math.ceil(estimate + error)));
+  }
+
+  private static int toFrequency(double estimate) {
+    return (int) Math.min(estimate, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Skips values of the iterator. The loop is tight, so skipping takes a fraction of the time of counting.
+   *
+   * @param values Values.
+   * @param count  Number of values to skip.
+   * @return Number of skipped values, less than the requested number if the iterator has no more values.
+   */
+  private static long skip(Iterator<String> values, long count) {
+    long skipped = 0;
+    while (skipped < count && values.hasNext()) {
+      values.next();
+      ++skipped;
+    }
+    return skipped;
+  }
+
+  /**
+   * Draws the number of values skipped before the next value of Bernoulli sample.
+   *
+   * @param random             Random generator.
+   * @param logSkipProbability Logarithm of probability of a value to be skipped.
+   * @return Number of values to skip, has geometric distribution.
+   */
+  private static long nextSkip(Random random, double logSkipProbability) {
+    if (logSkipProbability == Double.NEGATIVE_INFINITY) {
+      return 0;
+    }
+    return (long) (Math.log(1 - random.nextDouble()) / logSkipProbability);
+  }
+
+  /**
+   * Calculates quantile of the standard normal distribution with approximation 26.2.23 of Abramowitz and Stegun (the
+   * absolute error is less than 4.5e-4).
+   *
+   * @param probability Probability. Must be in [0.5; 1).
+   * @return Quantile.
+   */
+  static double normalQuantile(double probability) {
+    final double t = Math.sqrt(-2 * Math.log(1 - probability));
+    return t - (2.515517 + 0.802853 * t + 0.010328 * t * t)
+        / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+  }
+}
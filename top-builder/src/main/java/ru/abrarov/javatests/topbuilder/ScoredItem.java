@@ -0,0 +1,23 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Top list item which frequency is weighted, e.g. by age of occurrences.
+ *
+ * @see DecayedFrequencyCounter
+ */
+public interface ScoredItem {
+
+  /**
+   * Gets value of the item.
+   *
+   * @return Value of the item. Nullable.
+   */
+  String value();
+
+  /**
+   * Gets the weighted frequency of the value.
+   *
+   * @return Score of the value, >= 0.
+   */
+  double score();
+}
@@ -0,0 +1,60 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Decision model of {@link AdaptiveFrequencyAnalyzer} selecting implementation of FrequencyAnalyzer according to
+ * profile of analyzed values.
+ *
+ * @see DefaultSelectionPolicy
+ */
+public interface SelectionPolicy {
+
+  /**
+   * Selected implementation of FrequencyAnalyzer with the reason of selection.
+   */
+  final class Selection {
+
+    private final String engine;
+    private final FrequencyAnalyzer analyzer;
+    private final String reason;
+
+    /**
+     * Creates selection.
+     *
+     * @param engine   Short name of the selected implementation.
+     * @param analyzer Selected implementation.
+     * @param reason   Human readable reason of selection.
+     */
+    public Selection(String engine, FrequencyAnalyzer analyzer, String reason) {
+      this.engine = engine;
+      this.analyzer = analyzer;
+      this.reason = reason;
+    }
+
+    public String engine() {
+      return engine;
+    }
+
+    public FrequencyAnalyzer analyzer() {
+      return analyzer;
+    }
+
+    public String reason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (%s)", engine, reason);
+    }
+  }
+
+  /**
+   * Selects implementation of FrequencyAnalyzer.
+   *
+   * @param profile Profile of the values to be analyzed.
+   * @return Selected implementation. Analyzer of the selection is used for a single analysis. Unless it's one of the
+   * built-in implementations, it gets the values of the sample grouped by value (each value repeated by its frequency
+   * in the sample) followed by the rest of values, so it must not depend on the order of values.
+   */
+  Selection select(InputProfile profile);
+}
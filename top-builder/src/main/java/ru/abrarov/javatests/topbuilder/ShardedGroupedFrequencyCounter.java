@@ -0,0 +1,230 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Counter of values in groups (see {@link GroupedFrequencyCounter}) which counts batches of values in parallel. Groups
+ * are partitioned by hash among shards, each shard is a {@link GroupedFrequencyCounter} counting its groups only, so
+ * shards are counted in parallel without synchronization and the top list of a group is read from one shard. The top
+ * list of groups is merged from the top lists of groups of the shards.
+ * <p>
+ * Groups are hashed by {@link KeyedHash} with a random key of the counter rather than by {@link String#hashCode()}, so
+ * groups crafted to have equal hash codes are still spread among shards instead of loading one shard with all of them.
+ * <p>
+ * Instances are not thread safe: methods must not be called concurrently, but a batch is counted by tasks of the
+ * executor.
+ */
+public class ShardedGroupedFrequencyCounter {
+
+  private final GroupedFrequencyCounter[] shards;
+  private final ExecutorService executor;
+  private final long k0 = KeyedHash.newKey();
+  private final long k1 = KeyedHash.newKey();
+
+  /**
+   * Creates counter.
+   *
+   * @param shardCount        Number of shards, e.g. the number of threads of the executor. Must be > 0.
+   * @param maxValuesPerGroup The maximum number of values counted for a group, see {@link GroupedFrequencyCounter}.
+   * @param executor          Executor of counting tasks. Isn't shut down.
+   */
+  public ShardedGroupedFrequencyCounter(int shardCount, int maxValuesPerGroup, ExecutorService executor) {
+    assert shardCount > 0 : "shardCount must be > 0";
+
+    this.shards = new GroupedFrequencyCounter[shardCount];
+    for (int i = 0; i < shardCount; ++i) {
+      shards[i] = new GroupedFrequencyCounter(maxValuesPerGroup);
+    }
+    this.executor = executor;
+  }
+
+  /**
+   * Counts the batch of values. Returns when all values are counted. The batch is split into a slice per shard and
+   * counted in two rounds of tasks: the tasks of slices find shards of their groups, then the tasks of shards count
+   * their values of all slices in the order of the batch. So groups are hashed in parallel rather than by the calling
+   * thread. If a task fails then the other tasks of the round are awaited before the failure is rethrown, so no task
+   * changes the counter after return.
+   *
+   * @param groups Groups of the values. Null groups are permitted.
+   * @param values Values to count, the same number as groups. Null values are permitted.
+   * @throws InterruptedException If the current thread is interrupted while waiting. The tasks are cancelled, but
+   *                              running tasks may still change the counter, so it should be discarded.
+   */
+  public void addAll(final List<String> groups, final List<String> values) throws InterruptedException {
+    assert groups.size() == values.size() : "Numbers of groups and values must be equal";
+
+    final int sliceCount = shards.length;
+    // Indices of the values of each slice by shard
+    final int[][][] indices = new int[sliceCount][][];
+    final List<Callable<Void>> partitionTasks = new ArrayList<Callable<Void>>(sliceCount);
+    for (int slice = 0; slice < sliceCount; ++slice) {
+      final int sliceIndex = slice;
+      final int from = (int) ((long) groups.size() * slice / sliceCount);
+      final int to = (int) ((long) groups.size() * (slice + 1) / sliceCount);
+      partitionTasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          indices[sliceIndex] = partition(groups, from, to);
+          return null;
+        }
+      });
+    }
+    runAll(partitionTasks);
+    final List<Callable<Void>> countTasks = new ArrayList<Callable<Void>>(shards.length);
+    for (int shard = 0; shard < shards.length; ++shard) {
+      final int shardIndex = shard;
+      final GroupedFrequencyCounter counter = shards[shard];
+      countTasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int[][] sliceIndices : indices) {
+            for (int index : sliceIndices[shardIndex]) {
+              counter.add(groups.get(index), values.get(index));
+            }
+          }
+          return null;
+        }
+      });
+    }
+    runAll(countTasks);
+  }
+
+  /**
+   * Gets the number of counted values.
+   *
+   * @return Number of values counted so far in all groups.
+   */
+  public long valueCount() {
+    long valueCount = 0;
+    for (GroupedFrequencyCounter shard : shards) {
+      valueCount += shard.valueCount();
+    }
+    return valueCount;
+  }
+
+  /**
+   * Gets the number of groups.
+   *
+   * @return Number of groups having at least one value.
+   */
+  public int groupCount() {
+    int groupCount = 0;
+    for (GroupedFrequencyCounter shard : shards) {
+      groupCount += shard.groupCount();
+    }
+    return groupCount;
+  }
+
+  /**
+   * Builds the top list of the group.
+   *
+   * @param group Group. Nullable.
+   * @param size  The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values of the group, see {@link GroupedFrequencyCounter#top}.
+   */
+  public BoundedTopList top(String group, int size) {
+    return shards[shard(group)].top(group, size);
+  }
+
+  /**
+   * Builds the list of the groups having the most values.
+   *
+   * @param size The maximum size of the list to be built. Must be >= 0.
+   * @return List of groups with the numbers of their values, see {@link GroupedFrequencyCounter#topGroups}.
+   */
+  public List<FrequencyAnalyzer.Item> topGroups(int size) {
+    // Shards have disjoint groups, so the top list is among the top lists of shards
+    final List<FrequencyAnalyzer.Item> items = new ArrayList<FrequencyAnalyzer.Item>();
+    for (GroupedFrequencyCounter shard : shards) {
+      items.addAll(shard.topGroups(size));
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return new ArrayList<FrequencyAnalyzer.Item>(items.subList(0, Math.min(size, items.size())));
+  }
+
+  /**
+   * Runs the tasks by the executor and waits for all of them.
+   *
+   * @param tasks Tasks.
+   * @throws InterruptedException If the current thread is interrupted while waiting. The tasks are cancelled then.
+   */
+  private void runAll(List<Callable<Void>> tasks) throws InterruptedException {
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+    Throwable failure = null;
+    try {
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+    } catch (RejectedExecutionException e) {
+      failure = e;
+    }
+    try {
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<Void> future : futures) {
+        future.cancel(true);
+      }
+      throw e;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw (RuntimeException) failure;
+    }
+  }
+
+  /**
+   * Partitions the slice of the batch among shards.
+   *
+   * @param groups Groups of the batch.
+   * @param from   Index of the first value of the slice.
+   * @param to     Index after the last value of the slice.
+   * @return Indices of the values of the slice by shard, in ascending order.
+   */
+  private int[][] partition(List<String> groups, int from, int to) {
+    final int[] shardOfIndex = new int[to - from];
+    final int[] shardSizes = new int[shards.length];
+    for (int i = 0; i < shardOfIndex.length; ++i) {
+      final int shard = shard(groups.get(from + i));
+      shardOfIndex[i] = shard;
+      ++shardSizes[shard];
+    }
+    final int[][] indices = new int[shards.length][];
+    for (int shard = 0; shard < shards.length; ++shard) {
+      indices[shard] = new int[shardSizes[shard]];
+      shardSizes[shard] = 0;
+    }
+    for (int i = 0; i < shardOfIndex.length; ++i) {
+      final int shard = shardOfIndex[i];
+      indices[shard][shardSizes[shard]++] = from + i;
+    }
+    return indices;
+  }
+
+  /**
+   * Gets shard of the group.
+   *
+   * @param group Group. Nullable.
+   * @return Index of the shard counting the group.
+   */
+  int shard(String group) {
+    final long hash = (group == null ? 0 : KeyedHash.hash(k0, k1, group, group.length())) & 0xffffffffL;
+    return (int) ((hash * shards.length) >>> 32);
+  }
+}
@@ -0,0 +1,134 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Analyzer which doesn't create entries for the values met once. The first occurrence of a value is recorded in
+ * {@link BlockedBloomFilter} only (about 10 bits per unique value), and the value is counted in
+ * {@link StringCountTable} starting from the occurrence for which the filter reports that the value might have been
+ * met. So the table holds about the values met more than once (plus about 1% false positives of the filter), which is
+ * a small fraction of unique values when most values are unique, and the values met once are not retained.
+ * <p>
+ * The first occurrence of a counted value is missed unless the value was inserted on a false positive, hence one pass
+ * (see {@link #analyze}) undercounts each value by at most 1. The exact top list (see {@link #buildTopFrequentList})
+ * takes two passes over re-readable values: the second pass counts the values which might be in the top list exactly
+ * and, if values met once might be in the top list, collects the least of them.
+ *
+ * @see BlockedBloomFilter
+ */
+public class SingletonFilterFrequencyAnalyzer {
+
+  private static final Comparator<String> VALUE_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String left, String right) {
+      return Items.compareValues(left, right);
+    }
+  };
+
+  private final long expectedUniqueValues;
+
+  /**
+   * Creates analyzer.
+   *
+   * @param expectedUniqueValues Expected number of unique values used to size the filter. Must be >= 0. If there are
+   *                             more unique values then the filter makes more false positives, so more values met once
+   *                             are counted in the table, but results are still correct.
+   */
+  public SingletonFilterFrequencyAnalyzer(long expectedUniqueValues) {
+    assert expectedUniqueValues >= 0 : "expectedUniqueValues must be >= 0";
+
+    this.expectedUniqueValues = expectedUniqueValues;
+  }
+
+  /**
+   * Builds the list of the most frequent values in one pass.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted.
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values which are met more than once (or are false positives of the filter) with
+   * error bounds of their frequencies, the maximum error is 1.
+   */
+  public BoundedTopList analyze(Iterator<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    return BoundedTopList.of(count(values).top(size), 1);
+  }
+
+  /**
+   * Builds the exact list of the most frequent values in two passes.
+   *
+   * @param values Source values to be analyzed, iterated twice. Null values are permitted.
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values, the same as built by exact analyzers.
+   */
+  public List<FrequencyAnalyzer.Item> buildTopFrequentList(Iterable<String> values, int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    final StringCountTable table = count(values.iterator());
+    // Frequency of each counted value is count or count + 1, so the values which counts are less than the count of
+    // the last value of the top list minus 1 cannot be in the exact top list
+    final List<FrequencyAnalyzer.Item> counted = table.top(table.size());
+    final int minCount = counted.size() < size ? 1 : Math.max(1, counted.get(size - 1).frequency() - 1);
+    final List<FrequencyAnalyzer.Item> candidates = new ArrayList<FrequencyAnalyzer.Item>();
+    for (FrequencyAnalyzer.Item item : counted) {
+      if (item.frequency() < minCount) {
+        break;
+      }
+      candidates.add(item);
+    }
+    final StringCountTable exact = new StringCountTable(candidates.size());
+    // Candidates are counted once, so lookup of null works the same way as of other values
+    for (FrequencyAnalyzer.Item candidate : candidates) {
+      exact.add(candidate.value());
+    }
+    // The values met once might be in the top list only if the last value of the top list might be met once too
+    final boolean collectSingletons = minCount == 1;
+    final TreeSet<String> singletons = new TreeSet<String>(VALUE_ORDER);
+    final Iterator<String> iterator = values.iterator();
+    while (iterator.hasNext()) {
+      final String value = iterator.next();
+      if (exact.increment(value) || !collectSingletons) {
+        continue;
+      }
+      // Values missing in the table are met once
+      if (singletons.size() < size) {
+        singletons.add(value);
+      } else if (VALUE_ORDER.compare(value, singletons.last()) < 0) {
+        singletons.pollLast();
+        singletons.add(value);
+      }
+    }
+
+    final List<FrequencyAnalyzer.Item> items = new ArrayList<FrequencyAnalyzer.Item>(candidates.size()
+        + singletons.size());
+    for (FrequencyAnalyzer.Item candidate : candidates) {
+      items.add(Items.newItem(candidate.value(), exact.get(candidate.value()) - 1));
+    }
+    for (String singleton : singletons) {
+      items.add(Items.newItem(singleton, 1));
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return new ArrayList<FrequencyAnalyzer.Item>(items.subList(0, Math.min(size, items.size())));
+  }
+
+  private StringCountTable count(Iterator<String> values) {
+    final BlockedBloomFilter filter = new BlockedBloomFilter(expectedUniqueValues,
+        BlockedBloomFilter.DEFAULT_BITS_PER_VALUE);
+    final StringCountTable table = new StringCountTable();
+    while (values.hasNext()) {
+      final String value = values.next();
+      if (!table.increment(value) && filter.add(value)) {
+        table.add(value);
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,321 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped snapshot file of counting state used by {@link CheckpointedFrequencyCounter}.
+ * <p>
+ * Layout (version 1, big-endian):
+ * <pre>
+ * header (HEADER_SIZE bytes):
+ *   0  int  magic
+ *   4  int  version
+ *   8  int  segment size
+ *   64 commit slot 0, 96 commit slot 1:
+ *        long generation, long arena end, int record count, int reserved, long CRC32 of the previous 24 bytes
+ * arena (starts at HEADER_SIZE, mapped by segments of segment size):
+ *   record: int count of side 0, int count of side 1, int key length (-1 for null key), char[key length],
+ *           padded to multiple of 4 bytes
+ * </pre>
+ * Records are appended and never move. A record never crosses a segment boundary: the rest of the segment is skipped
+ * (marked with {@link #PADDING} key length if there is enough space for it).
+ * <p>
+ * Each record holds 2 counts (sides). Commit of generation g states that side (g &amp; 1) of all records below the
+ * arena end holds consistent counts, so the other side can be overwritten by the next checkpoint without breaking the
+ * last committed state. Commit slot (g &amp; 1) is used for generation g, so a torn commit doesn't break the previous
+ * one either.
+ */
+final class SnapshotFile implements Closeable {
+
+  static final int MAGIC = 0x54425346;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 4096;
+  static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+  private static final int SEGMENT_SIZE_OFFSET = 8;
+  private static final int COMMIT_SLOT_OFFSET = 64;
+  private static final int COMMIT_SLOT_SIZE = 32;
+  private static final int COMMIT_DATA_SIZE = 24;
+  private static final int RECORD_HEADER_SIZE = 12;
+  private static final int NULL_KEY = -1;
+  private static final int PADDING = -2;
+
+  /**
+   * Visitor of records.
+   */
+  interface RecordVisitor {
+
+    /**
+     * Visits record.
+     *
+     * @param offset Offset of the record.
+     * @param value  Key of the record. Nullable.
+     * @param count  Count of the committed side.
+     */
+    void visit(long offset, String value, int count);
+  }
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final MappedByteBuffer header;
+  private final int segmentSize;
+  private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+  private final BitSet dirtySegments = new BitSet();
+  private long generation;
+  private long committedArenaEnd = HEADER_SIZE;
+  private int committedRecordCount;
+  private long arenaEnd = HEADER_SIZE;
+  private int recordCount;
+
+  /**
+   * Opens existing snapshot file or creates new one.
+   *
+   * @param file        Snapshot file.
+   * @param segmentSize Size of arena segment for new file. Existing file uses the size it was created with. Must be a
+   *                    multiple of 4 and >= 64.
+   * @throws IOException If the file cannot be opened or has unsupported format.
+   */
+  SnapshotFile(File file, int segmentSize) throws IOException {
+    assert segmentSize >= 64 && segmentSize % 4 == 0 : "segmentSize must be a multiple of 4 and >= 64";
+
+    this.file = new RandomAccessFile(file, "rw");
+    try {
+      final boolean created = this.file.length() == 0;
+      this.channel = this.file.getChannel();
+      this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+      if (created) {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(SEGMENT_SIZE_OFFSET, segmentSize);
+        header.force();
+        this.segmentSize = segmentSize;
+      } else {
+        if (header.getInt(0) != MAGIC) {
+          throw new IOException("Not a snapshot file: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+          throw new IOException("Unsupported snapshot file version: " + header.getInt(4));
+        }
+        this.segmentSize = header.getInt(SEGMENT_SIZE_OFFSET);
+        readLastCommit();
+      }
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+    arenaEnd = committedArenaEnd;
+    recordCount = committedRecordCount;
+  }
+
+  /**
+   * Gets the generation of the last commit.
+   *
+   * @return Generation of the last commit or 0 if there were no commits.
+   */
+  long generation() {
+    return generation;
+  }
+
+  /**
+   * Gets the number of records allocated so far (committed or not).
+   *
+   * @return Number of allocated records.
+   */
+  int recordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Gets the end of the allocated records.
+   *
+   * @return Offset following the last allocated record.
+   */
+  long arenaEnd() {
+    return arenaEnd;
+  }
+
+  /**
+   * Visits the committed records in order of their allocation. Counts of the side of the last commit are visited.
+   *
+   * @param visitor Visitor of records.
+   * @throws IOException If mapping of the file fails.
+   */
+  void readRecords(RecordVisitor visitor) throws IOException {
+    final int side = (int) (generation & 1);
+    long offset = HEADER_SIZE;
+    char[] chars = new char[16];
+    while (offset < committedArenaEnd) {
+      final int segmentOffset = segmentOffset(offset);
+      final MappedByteBuffer segment = segment(offset);
+      if (segmentSize - segmentOffset < RECORD_HEADER_SIZE) {
+        offset += segmentSize - segmentOffset;
+        continue;
+      }
+      final int keyLength = segment.getInt(segmentOffset + 8);
+      if (keyLength == PADDING) {
+        offset += segmentSize - segmentOffset;
+        continue;
+      }
+      final int count = segment.getInt(segmentOffset + 4 * side);
+      String value = null;
+      if (keyLength != NULL_KEY) {
+        if (keyLength > chars.length) {
+          chars = new char[Math.max(keyLength, chars.length * 2)];
+        }
+        final ByteBuffer key = segment.duplicate();
+        key.position(segmentOffset + RECORD_HEADER_SIZE);
+        key.asCharBuffer().get(chars, 0, keyLength);
+        value = new String(chars, 0, keyLength);
+      }
+      visitor.visit(offset, value, count);
+      offset += recordSize(keyLength);
+    }
+  }
+
+  /**
+   * Allocates new record and writes its key. Counts of the record are zeroed.
+   *
+   * @param value Key of the record. Nullable.
+   * @return Offset of the allocated record.
+   * @throws IOException If mapping of the file fails.
+   */
+  long appendRecord(String value) throws IOException {
+    final int keyLength = value == null ? NULL_KEY : value.length();
+    final int size = recordSize(keyLength);
+    if (size > segmentSize) {
+      throw new IOException("Value is too long for the snapshot segment size");
+    }
+    int segmentOffset = segmentOffset(arenaEnd);
+    if (segmentSize - segmentOffset < size) {
+      if (segmentSize - segmentOffset >= RECORD_HEADER_SIZE) {
+        segment(arenaEnd).putInt(segmentOffset + 8, PADDING);
+        markDirty(arenaEnd);
+      }
+      arenaEnd += segmentSize - segmentOffset;
+      segmentOffset = 0;
+    }
+    final long offset = arenaEnd;
+    final MappedByteBuffer segment = segment(offset);
+    segment.putInt(segmentOffset, 0);
+    segment.putInt(segmentOffset + 4, 0);
+    segment.putInt(segmentOffset + 8, keyLength);
+    for (int i = 0; i < keyLength; ++i) {
+      segment.putChar(segmentOffset + RECORD_HEADER_SIZE + 2 * i, value.charAt(i));
+    }
+    markDirty(offset);
+    arenaEnd += size;
+    ++recordCount;
+    return offset;
+  }
+
+  /**
+   * Writes count of the record.
+   *
+   * @param offset Offset of the record.
+   * @param side   Side of the record to write (0 or 1).
+   * @param count  Count to write.
+   * @throws IOException If mapping of the file fails.
+   */
+  void writeCount(long offset, int side, int count) throws IOException {
+    segment(offset).putInt(segmentOffset(offset) + 4 * side, count);
+    markDirty(offset);
+  }
+
+  /**
+   * Forces changes of one of the modified segments to the storage.
+   *
+   * @return True if there was a modified segment.
+   */
+  boolean forceNextSegment() {
+    final int index = dirtySegments.nextSetBit(0);
+    if (index < 0) {
+      return false;
+    }
+    segments.get(index).force();
+    dirtySegments.clear(index);
+    return true;
+  }
+
+  /**
+   * Commits new generation. Records must be forced to the storage before commit.
+   *
+   * @param newGeneration Generation to commit. Its side must hold consistent counts of all records below the given
+   *                      arena end.
+   * @param newArenaEnd   End of the committed records.
+   * @param newRecordCount Number of the committed records.
+   */
+  void commit(long newGeneration, long newArenaEnd, int newRecordCount) {
+    assert newGeneration > generation : "Generation must grow";
+
+    final int slot = COMMIT_SLOT_OFFSET + COMMIT_SLOT_SIZE * (int) (newGeneration & 1);
+    header.putLong(slot, newGeneration);
+    header.putLong(slot + 8, newArenaEnd);
+    header.putInt(slot + 16, newRecordCount);
+    header.putInt(slot + 20, 0);
+    header.putLong(slot + COMMIT_DATA_SIZE, commitChecksum(slot));
+    header.force();
+    generation = newGeneration;
+    committedArenaEnd = newArenaEnd;
+    committedRecordCount = newRecordCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    segments.clear();
+    file.close();
+  }
+
+  private void readLastCommit() {
+    for (int i = 0; i < 2; ++i) {
+      final int slot = COMMIT_SLOT_OFFSET + COMMIT_SLOT_SIZE * i;
+      final long slotGeneration = header.getLong(slot);
+      if (slotGeneration <= generation || (slotGeneration & 1) != i
+          || header.getLong(slot + COMMIT_DATA_SIZE) != commitChecksum(slot)) {
+        continue;
+      }
+      generation = slotGeneration;
+      committedArenaEnd = header.getLong(slot + 8);
+      committedRecordCount = header.getInt(slot + 16);
+    }
+  }
+
+  private long commitChecksum(int slot) {
+    final CRC32 crc = new CRC32();
+    for (int i = 0; i < COMMIT_DATA_SIZE; ++i) {
+      crc.update(header.get(slot + i));
+    }
+    return crc.getValue();
+  }
+
+  private MappedByteBuffer segment(long offset) throws IOException {
+    final int index = (int) ((offset - HEADER_SIZE) / segmentSize);
+    while (segments.size() <= index) {
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+          HEADER_SIZE + (long) segments.size() * segmentSize, segmentSize));
+    }
+    return segments.get(index);
+  }
+
+  private int segmentOffset(long offset) {
+    return (int) ((offset - HEADER_SIZE) % segmentSize);
+  }
+
+  private void markDirty(long offset) {
+    dirtySegments.set((int) ((offset - HEADER_SIZE) / segmentSize));
+  }
+
+  private static int recordSize(int keyLength) {
+    final int size = RECORD_HEADER_SIZE + 2 * Math.max(keyLength, 0);
+    return (size + 3) & ~3;
+  }
+}
@@ -0,0 +1,27 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FrequencyAnalyzer which can continue counting of values which head (e.g. the sample used to select the
+ * implementation) is already counted by {@link NaiveFrequencyAnalyzer#countHead}. The head isn't buffered and isn't
+ * counted twice: the distribution map of the head is continued by {@link NaiveFrequencyAnalyzer} or its counts are
+ * moved to the structure of the analyzer, which costs the number of distinct values of the head.
+ *
+ * @see AdaptiveFrequencyAnalyzer
+ */
+interface SplitInputFrequencyAnalyzer extends FrequencyAnalyzer {
+
+  /**
+   * Builds the list of the most frequent values of the head followed by the rest of values.
+   *
+   * @param head   Distribution map of the first values built by {@link NaiveFrequencyAnalyzer#countHead}. Owned by the
+   *               analyzer after the call.
+   * @param values The rest of values. Null iterator values are permitted.
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @return List of the most frequent values with their frequencies.
+   */
+  List<Item> buildTopFrequentList(Map<String, Item> head, Iterator<String> values, int size);
+}
@@ -0,0 +1,396 @@
+package ru.abrarov.javatests.topbuilder;
+
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hash table of counts of strings built of parallel arrays (keys, cached hashes of keys, counts) with open addressing
+ * (linear probing) and power-of-two capacity, see {@link StringHashTable}. There are no objects per entry, so the
+ * table takes much less memory than {@link java.util.HashMap} and increments don't chase pointers except for the key
+ * comparison.
+ */
+final class StringCountTable extends StringHashTable {
+
+  /**
+   * Recommended size of batches of {@link #addAll}: large enough to overlap lookups, small enough to fit L1 cache.
+   */
+  static final int BATCH_SIZE = 64;
+
+  private int[] counts;
+  private int[] batchHashes = new int[0];
+
+  StringCountTable() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates table.
+   *
+   * @param expectedSize Expected number of unique keys. Must be >= 0.
+   */
+  StringCountTable(int expectedSize) {
+    super(expectedSize);
+    counts = new int[capacity + 1];
+  }
+
+  /**
+   * Increments count of the key by 1.
+   *
+   * @param key Key to count. Nullable.
+   */
+  void add(String key) {
+    add(key, 1);
+  }
+
+  /**
+   * Increments count of the key.
+   *
+   * @param key   Key to count. Nullable.
+   * @param delta Value to add to the count of the key. Must be > 0.
+   */
+  void add(String key, int delta) {
+    add(key, key == null ? 0 : hash(key), delta);
+  }
+
+  /**
+   * Increments counts of the keys by 1. Hashes of all keys of the batch are computed before the keys are looked up, so
+   * cache misses of the lookups overlap instead of waiting behind the hash computation of each key. It matters when
+   * keys are hashed by {@link KeyedHash} which reads characters of each key, unlike the cached
+   * {@link String#hashCode()}.
+   *
+   * @param batch Keys to count. Nullable keys are permitted.
+   * @param count Number of keys to count from the beginning of the batch. Must be in [0; batch.length].
+   */
+  void addAll(String[] batch, int count) {
+    if (batchHashes.length < count) {
+      batchHashes = new int[count];
+    }
+    hashAll(batch, 0, count, batchHashes);
+    int rehashCount = rehashCount();
+    for (int i = 0; i < count; ++i) {
+      add(batch[i], batchHashes[i], 1);
+      if (rehashCount() != rehashCount) {
+        rehashCount = rehashCount();
+        hashAll(batch, i + 1, count, batchHashes);
+      }
+    }
+  }
+
+  private void add(String key, int hash, int delta) {
+    if (key == null) {
+      if (counts[capacity] == 0) {
+        ++size;
+      }
+      counts[capacity] += delta;
+      return;
+    }
+    // The probe loop of find() is repeated here and in increment(): returning from the loop on hit makes the hot path
+    // of analyzers about 15% faster than testing the found slot after the loop
+    int slot = slot(hash);
+    int probeLength = 0;
+    String slotKey;
+    while ((slotKey = keys[slot]) != null) {
+      if (slotKey == key || (hashes[slot] == hash && slotKey.equals(key))) {
+        counts[slot] += delta;
+        checkProbeLength(probeLength);
+        return;
+      }
+      slot = (slot + 1) & (capacity - 1);
+      ++probeLength;
+    }
+    keys[slot] = key;
+    hashes[slot] = hash;
+    counts[slot] = delta;
+    inserted(slot, hash);
+  }
+
+  /**
+   * Increments count of the key by 1 if the key is in the table.
+   *
+   * @param key Key to count. Nullable.
+   * @return True if the key is in the table, false if nothing was changed.
+   */
+  boolean increment(String key) {
+    if (key == null) {
+      if (counts[capacity] == 0) {
+        return false;
+      }
+      ++counts[capacity];
+      return true;
+    }
+    final int hash = hash(key);
+    int slot = slot(hash);
+    int probeLength = 0;
+    String slotKey;
+    while ((slotKey = keys[slot]) != null) {
+      if (slotKey == key || (hashes[slot] == hash && slotKey.equals(key))) {
+        ++counts[slot];
+        checkProbeLength(probeLength);
+        return true;
+      }
+      slot = (slot + 1) & (capacity - 1);
+      ++probeLength;
+    }
+    checkProbeLength(probeLength);
+    return false;
+  }
+
+  /**
+   * Increments count of the prefix of the source string by 1. The prefix is compared with the keys in place, a new
+   * String is created only if the prefix isn't in the table yet.
+   *
+   * @param source Source string. Not null.
+   * @param length Length of the prefix. Must be in [0; source.length()].
+   * @param hash   Hash code of the prefix, i.e. the same as {@link String#hashCode()} of the prefix. Ignored if the
+   *               table is rehashed by keyed hash.
+   */
+  void addPrefix(String source, int length, int hash) {
+    hash = hash(source, length, hash);
+    final int slot = findPrefix(source, length, hash);
+    if (keys[slot] != null) {
+      ++counts[slot];
+      accessed(slot, hash);
+      return;
+    }
+    keys[slot] = length == source.length() ? source : source.substring(0, length);
+    hashes[slot] = hash;
+    counts[slot] = 1;
+    inserted(slot, hash);
+  }
+
+  /**
+   * Increments count of the prefix of the source string by 1 if the prefix is in the table.
+   *
+   * @param source Source string. Not null.
+   * @param length Length of the prefix. Must be in [0; source.length()].
+   * @param hash   Hash code of the prefix, i.e. the same as {@link String#hashCode()} of the prefix. Ignored if the
+   *               table is rehashed by keyed hash.
+   * @return True if the prefix is in the table, false if nothing was changed.
+   */
+  boolean incrementPrefix(String source, int length, int hash) {
+    hash = hash(source, length, hash);
+    final int slot = findPrefix(source, length, hash);
+    final boolean found = keys[slot] != null;
+    if (found) {
+      ++counts[slot];
+    }
+    accessed(slot, hash);
+    return found;
+  }
+
+  /**
+   * Subtracts the minimum count from the counts of all keys and removes the keys which counts become zero, i.e. the
+   * keys having the minimum count. Capacity of the table isn't changed and no memory is allocated.
+   *
+   * @return The subtracted count or 0 if the table is empty.
+   */
+  int subtractMinimum() {
+    int minimum = counts[capacity] > 0 ? counts[capacity] : Integer.MAX_VALUE;
+    for (int slot = 0; slot < capacity; ++slot) {
+      if (keys[slot] != null && counts[slot] < minimum) {
+        minimum = counts[slot];
+      }
+    }
+    if (minimum == Integer.MAX_VALUE) {
+      return 0;
+    }
+    if (counts[capacity] > 0) {
+      counts[capacity] -= minimum;
+      if (counts[capacity] == 0) {
+        --size;
+      }
+    }
+    for (int slot = 0; slot < capacity; ++slot) {
+      if (keys[slot] != null) {
+        counts[slot] -= minimum;
+        if (counts[slot] == 0) {
+          keys[slot] = null;
+          --size;
+        }
+      }
+    }
+    compact();
+    return minimum;
+  }
+
+  /**
+   * Estimates memory taken by the keys of the table.
+   *
+   * @return Estimated size of the keys in bytes.
+   */
+  long keysSizeInBytes() {
+    long keysSize = 0;
+    for (int slot = 0; slot < capacity; ++slot) {
+      if (keys[slot] != null) {
+        keysSize += MemoryEstimates.stringSize(keys[slot]);
+      }
+    }
+    return keysSize;
+  }
+
+  /**
+   * Gets count of the key.
+   *
+   * @param key Key to search for. Nullable.
+   * @return Count of the key or 0 if the key wasn't counted.
+   */
+  int get(String key) {
+    if (key == null) {
+      return counts[capacity];
+    }
+    final int slot = find(key, hash(key));
+    return keys[slot] == null ? 0 : counts[slot];
+  }
+
+  /**
+   * Counts occurrences of the candidate keys only. Other values are only looked up, so memory consumption depends on
+   * the number of candidates only.
+   *
+   * @param candidates Candidate keys. Nullable keys are permitted.
+   * @param values     Values to count.
+   * @return Exact counts of the candidates in the order of candidates.
+   */
+  static int[] countCandidates(List<String> candidates, Iterator<String> values) {
+    final StringCountTable table = new StringCountTable(candidates.size());
+    // Candidates are counted once, so lookup of null works the same way as of other keys
+    for (String candidate : candidates) {
+      if (table.get(candidate) == 0) {
+        table.add(candidate);
+      }
+    }
+    while (values.hasNext()) {
+      table.increment(values.next());
+    }
+    final int[] counts = new int[candidates.size()];
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] = table.get(candidates.get(i)) - 1;
+    }
+    return counts;
+  }
+
+  /**
+   * Estimates memory taken by the table itself, i.e. excluding keys.
+   *
+   * @return Estimated size of the arrays of the table in bytes.
+   */
+  long arraysSizeInBytes() {
+    return arraysSizeInBytes(capacity);
+  }
+
+  /**
+   * Estimates memory taken by the table after growth.
+   *
+   * @return Estimated size of the arrays of the grown table in bytes.
+   */
+  long grownArraysSizeInBytes() {
+    return arraysSizeInBytes(capacity << 1);
+  }
+
+  private static long arraysSizeInBytes(int capacity) {
+    return MemoryEstimates.arraySize(capacity + 1, MemoryEstimates.REFERENCE_SIZE)
+        + 2 * MemoryEstimates.arraySize(capacity + 1, 4);
+  }
+
+  /**
+   * Builds the list of the keys having the greatest counts in the order of {@link Items#FREQUENCY_ORDER}. Slots are
+   * read directly and selected with a bounded heap, so items are created for the selected keys only.
+   *
+   * @param size The maximum size of the list to be built. Must be >= 0.
+   * @return List of the keys having the greatest counts.
+   */
+  List<Item> top(int size) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final int heapCapacity = Math.min(size, this.size);
+    if (heapCapacity == 0) {
+      return Collections.emptyList();
+    }
+    // Min-heap of slots: the root is the worst of the selected slots
+    final int[] heap = new int[heapCapacity];
+    int heapSize = 0;
+    for (int slot = 0; slot <= capacity; ++slot) {
+      if (slot < capacity ? keys[slot] == null : counts[slot] == 0) {
+        continue;
+      }
+      if (heapSize < heapCapacity) {
+        heap[heapSize] = slot;
+        siftUp(heap, heapSize++);
+      } else if (compareSlots(slot, heap[0]) < 0) {
+        heap[0] = slot;
+        siftDown(heap, 0, heapSize);
+      }
+    }
+    final Item[] items = new Item[heapSize];
+    while (heapSize > 0) {
+      final int slot = heap[0];
+      items[--heapSize] = Items.newItem(keys[slot], counts[slot]);
+      heap[0] = heap[heapSize];
+      siftDown(heap, 0, heapSize);
+    }
+    final List<Item> result = new ArrayList<Item>(items.length);
+    Collections.addAll(result, items);
+    return result;
+  }
+
+  /**
+   * Compares slots in the order of {@link Items#FREQUENCY_ORDER}.
+   */
+  private int compareSlots(int left, int right) {
+    return Items.compare(counts[left], keys[left], counts[right], keys[right]);
+  }
+
+  private void siftUp(int[] heap, int index) {
+    final int slot = heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) >>> 1;
+      if (compareSlots(heap[parent], slot) >= 0) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = slot;
+  }
+
+  private void siftDown(int[] heap, int index, int heapSize) {
+    final int slot = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && compareSlots(heap[child + 1], heap[child]) > 0) {
+        ++child;
+      }
+      if (compareSlots(heap[child], slot) <= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = slot;
+  }
+
+  @Override
+  Object replaceValues(int length) {
+    final int[] oldCounts = counts;
+    counts = new int[length];
+    return oldCounts;
+  }
+
+  @Override
+  void moveValue(Object oldValues, int from, int to) {
+    counts[to] = ((int[]) oldValues)[from];
+  }
+
+  @Override
+  void swapValues(int left, int right) {
+    final int count = counts[left];
+    counts[left] = counts[right];
+    counts[right] = count;
+  }
+}
@@ -0,0 +1,379 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * Base of hash tables of strings built of parallel arrays (keys, cached hashes of keys and values of the subclass) with
+ * open addressing (linear probing) and power-of-two capacity. The base keeps keys and hashes and reorganizes slots:
+ * the subclass keeps its values in an array parallel to keys and moves them on request (see {@link #replaceValues},
+ * {@link #moveValue} and {@link #swapValues}). Values of empty slots must be equal to the default value of the array,
+ * so they are kept so when slots are swapped.
+ * <p>
+ * Null key is kept by subclasses in the extra slot following the last slot of the table.
+ * <p>
+ * Keys are hashed by {@link String#hashCode()} which is cached by strings, but its collisions are easy to craft (e.g.
+ * "Aa" and "BB" collide, so do all their concatenations of the same length), and keys with equal hash codes share one
+ * probe sequence. If a probe sequence becomes longer than expected for random hashes (see {@link #maxProbeLength}) then
+ * the table is rehashed with {@link KeyedHash} by a random key of the table, and it's rehashed by a new random key each
+ * time it happens again. So crafted keys cost one rehash instead of quadratic time, while tables of usual keys never
+ * compute keyed hashes. Keys are rehashed in place: the rehash takes a bit per slot (see {@link #rehashSizeInBytes()})
+ * instead of the second set of arrays, so it may happen in a table which is not allowed to grow.
+ */
+abstract class StringHashTable {
+
+  static final int MIN_CAPACITY = 16;
+  /**
+   * The maximum load factor is 5/8 to keep probe sequences short.
+   */
+  private static final int LOAD_FACTOR_NUMERATOR = 5;
+  private static final int LOAD_FACTOR_DENOMINATOR = 8;
+  private static final int GOLDEN_RATIO = 0x9e3779b9;
+  /**
+   * Lower limit of {@link #maxProbeLength} for small tables.
+   */
+  private static final int MIN_MAX_PROBE_LENGTH = 64;
+  /**
+   * The maximum probe length is the multiple of log2(capacity). Clusters of linear probing at the load factor 5/8 are
+   * longer than k with probability about 0.91^k, so the longest cluster is about 7 * log2(capacity) for random hashes.
+   */
+  private static final int PROBE_LENGTH_PER_CAPACITY_BIT = 16;
+
+  String[] keys;
+  int[] hashes;
+  int capacity;
+  /**
+   * Number of keys including null key.
+   */
+  int size;
+  private int shift;
+  private int threshold;
+  private int maxProbeLength;
+  /**
+   * Whether keys are hashed by {@link KeyedHash} with the key (k0, k1) instead of {@link String#hashCode()}.
+   */
+  private boolean keyed;
+  private long k0;
+  private long k1;
+  /**
+   * Number of rehashes by keyed hash, i.e. of changes of {@link #hash(String)}.
+   */
+  private int rehashCount;
+
+  /**
+   * Creates table. The subclass allocates its values for {@link #capacity} + 1 slots.
+   *
+   * @param expectedSize Expected number of unique keys. Must be >= 0.
+   */
+  StringHashTable(int expectedSize) {
+    assert expectedSize >= 0 : "expectedSize must be >= 0";
+
+    int initialCapacity = MIN_CAPACITY;
+    while ((long) initialCapacity * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR < expectedSize) {
+      initialCapacity <<= 1;
+    }
+    setCapacity(initialCapacity);
+    keys = new String[initialCapacity + 1];
+    hashes = new int[initialCapacity + 1];
+  }
+
+  /**
+   * Replaces the array of values with a new empty array.
+   *
+   * @param length Length of the new array.
+   * @return The old array.
+   */
+  abstract Object replaceValues(int length);
+
+  /**
+   * Moves value from the old array of values to the current one.
+   *
+   * @param oldValues The old array returned by {@link #replaceValues}.
+   * @param from      Slot in the old array.
+   * @param to        Slot in the current array.
+   */
+  abstract void moveValue(Object oldValues, int from, int to);
+
+  /**
+   * Swaps values of the slots.
+   *
+   * @param left  Slot.
+   * @param right Other slot.
+   */
+  abstract void swapValues(int left, int right);
+
+  /**
+   * Checks if keys are hashed by keyed hash, i.e. if long probe sequences were met.
+   *
+   * @return True if the table was rehashed by keyed hash.
+   */
+  final boolean isKeyed() {
+    return keyed;
+  }
+
+  /**
+   * Gets the number of unique keys.
+   *
+   * @return Number of unique keys including null key.
+   */
+  final int size() {
+    return size;
+  }
+
+  /**
+   * Checks if insertion of a new key causes growth of the table.
+   *
+   * @return True if the number of keys reached the maximum load of the current capacity.
+   */
+  final boolean isFull() {
+    return size >= threshold;
+  }
+
+  /**
+   * Estimates memory taken temporarily by the rehash by keyed hash, which may happen on any access.
+   *
+   * @return Estimated size of the transient bit set of the rehash in bytes.
+   */
+  final long rehashSizeInBytes() {
+    return MemoryEstimates.arraySize((capacity + 63) >>> 6, 8);
+  }
+
+  /**
+   * Hashes the key.
+   *
+   * @param key Key. Not null.
+   * @return Hash of the key used by the table.
+   */
+  final int hash(String key) {
+    return keyed ? KeyedHash.hash(k0, k1, key, key.length()) : key.hashCode();
+  }
+
+  /**
+   * Hashes the prefix.
+   *
+   * @param source Source string. Not null.
+   * @param length Length of the prefix. Must be in [0; source.length()].
+   * @param hash   Hash code of the prefix, i.e. the same as {@link String#hashCode()} of the prefix.
+   * @return Hash of the prefix used by the table.
+   */
+  final int hash(String source, int length, int hash) {
+    return keyed ? KeyedHash.hash(k0, k1, source, length) : hash;
+  }
+
+  /**
+   * Hashes the keys, see {@link #hash(String)}. Hashes become invalid when {@link #rehashCount()} changes.
+   *
+   * @param keys   Keys. Nullable keys are permitted, their hashes are 0.
+   * @param from   Index of the first key to hash.
+   * @param to     Index after the last key to hash.
+   * @param hashes Array to store the hashes at the indices of keys.
+   */
+  final void hashAll(String[] keys, int from, int to, int[] hashes) {
+    if (!keyed) {
+      for (int i = from; i < to; ++i) {
+        hashes[i] = keys[i] == null ? 0 : keys[i].hashCode();
+      }
+      return;
+    }
+    // Lengths are read first: it loads characters of all keys to cache at once instead of one key per hash computation
+    for (int i = from; i < to; ++i) {
+      hashes[i] = keys[i] == null ? 0 : keys[i].length();
+    }
+    for (int i = from; i < to; ++i) {
+      if (keys[i] != null) {
+        hashes[i] = KeyedHash.hash(k0, k1, keys[i], hashes[i]);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of rehashes by keyed hash.
+   *
+   * @return Number of times the hash function of the table was changed.
+   */
+  final int rehashCount() {
+    return rehashCount;
+  }
+
+  final int slot(int hash) {
+    return (hash * GOLDEN_RATIO) >>> shift;
+  }
+
+  /**
+   * Finds slot of the key.
+   *
+   * @param key  Key. Not null.
+   * @param hash Hash of the key, see {@link #hash(String)}.
+   * @return Slot of the key or the empty slot where the key should be inserted.
+   */
+  final int find(String key, int hash) {
+    int slot = slot(hash);
+    String slotKey;
+    while ((slotKey = keys[slot]) != null) {
+      if (slotKey == key || (hashes[slot] == hash && slotKey.equals(key))) {
+        return slot;
+      }
+      slot = (slot + 1) & (capacity - 1);
+    }
+    return slot;
+  }
+
+  /**
+   * Finds slot of the prefix.
+   *
+   * @param source Source string. Not null.
+   * @param length Length of the prefix. Must be in [0; source.length()].
+   * @param hash   Hash of the prefix, see {@link #hash(String, int, int)}.
+   * @return Slot of the prefix or the empty slot where the prefix should be inserted.
+   */
+  final int findPrefix(String source, int length, int hash) {
+    int slot = slot(hash);
+    String slotKey;
+    while ((slotKey = keys[slot]) != null) {
+      if (hashes[slot] == hash && slotKey.length() == length && slotKey.regionMatches(0, source, 0, length)) {
+        return slot;
+      }
+      slot = (slot + 1) & (capacity - 1);
+    }
+    return slot;
+  }
+
+  /**
+   * Completes access to the slot found by {@link #find} or {@link #findPrefix}: rehashes keys by keyed hash if the
+   * probe sequence was too long.
+   *
+   * @param slot Found slot.
+   * @param hash Hash of the key.
+   */
+  final void accessed(int slot, int hash) {
+    checkProbeLength((slot - slot(hash)) & (capacity - 1));
+  }
+
+  /**
+   * Completes insertion of the key to the slot found by {@link #find} or {@link #findPrefix}: grows the table if
+   * needed and rehashes keys by keyed hash if the probe sequence was too long. The key, its hash and its value must be
+   * written to the slot before the call.
+   *
+   * @param slot Slot of the inserted key.
+   * @param hash Hash of the key.
+   */
+  final void inserted(int slot, int hash) {
+    final int probeLength = (slot - slot(hash)) & (capacity - 1);
+    if (++size > threshold) {
+      grow();
+    }
+    checkProbeLength(probeLength);
+  }
+
+  /**
+   * Moves keys to restore probe sequences after removal of keys. Keys are reinserted in the order of probing starting
+   * after an empty slot, so each key is either kept in place or moved to an earlier slot of its probe sequence.
+   */
+  final void compact() {
+    final int mask = capacity - 1;
+    int start = 0;
+    while (keys[start] != null) {
+      ++start;
+    }
+    for (int i = 1; i <= capacity; ++i) {
+      final int slot = (start + i) & mask;
+      if (keys[slot] == null) {
+        continue;
+      }
+      int newSlot = slot(hashes[slot]);
+      while (newSlot != slot && keys[newSlot] != null) {
+        newSlot = (newSlot + 1) & mask;
+      }
+      if (newSlot != slot) {
+        swap(slot, newSlot);
+      }
+    }
+  }
+
+  private void setCapacity(int newCapacity) {
+    capacity = newCapacity;
+    shift = Integer.numberOfLeadingZeros(newCapacity) + 1;
+    threshold = (int) ((long) newCapacity * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR);
+    maxProbeLength = Math.max(MIN_MAX_PROBE_LENGTH,
+        PROBE_LENGTH_PER_CAPACITY_BIT * Integer.numberOfTrailingZeros(newCapacity));
+  }
+
+  /**
+   * Doubles capacity: keys are inserted to new arrays, so old and new arrays coexist during growth.
+   */
+  private void grow() {
+    final String[] oldKeys = keys;
+    final int[] oldHashes = hashes;
+    final int oldCapacity = capacity;
+    setCapacity(capacity << 1);
+    keys = new String[capacity + 1];
+    hashes = new int[capacity + 1];
+    final Object oldValues = replaceValues(capacity + 1);
+    moveValue(oldValues, oldCapacity, capacity);
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldCapacity; ++i) {
+      final String key = oldKeys[i];
+      if (key == null) {
+        continue;
+      }
+      int slot = slot(oldHashes[i]);
+      while (keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      hashes[slot] = oldHashes[i];
+      moveValue(oldValues, i, slot);
+    }
+  }
+
+  /**
+   * Rehashes keys by keyed hash with a new random key if the probe sequence is too long.
+   *
+   * @param probeLength Number of slots probed before the slot of the accessed key.
+   */
+  final void checkProbeLength(int probeLength) {
+    if (probeLength <= maxProbeLength) {
+      return;
+    }
+    keyed = true;
+    ++rehashCount;
+    k0 = KeyedHash.newKey();
+    k1 = KeyedHash.newKey();
+    for (int slot = 0; slot < capacity; ++slot) {
+      if (keys[slot] != null) {
+        hashes[slot] = KeyedHash.hash(k0, k1, keys[slot], keys[slot].length());
+      }
+    }
+    rehash();
+  }
+
+  /**
+   * Moves keys to the slots of their hashes in place. A key is moved to the first slot of its probe sequence which is
+   * empty or holds a key not moved yet, and the displaced key is moved next. Moved keys are never displaced, so the
+   * probe sequence of each moved key consists of occupied slots. Moved slots are marked in a bit set.
+   */
+  private void rehash() {
+    final int mask = capacity - 1;
+    final long[] moved = new long[(capacity + 63) >>> 6];
+    for (int start = 0; start < capacity; ++start) {
+      // The key at the start slot is the one being moved
+      while (keys[start] != null && (moved[start >>> 6] & 1L << start) == 0) {
+        int slot = slot(hashes[start]);
+        while (keys[slot] != null && (moved[slot >>> 6] & 1L << slot) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        moved[slot >>> 6] |= 1L << slot;
+        if (slot != start) {
+          swap(start, slot);
+        }
+      }
+    }
+  }
+
+  private void swap(int left, int right) {
+    final String key = keys[left];
+    keys[left] = keys[right];
+    keys[right] = key;
+    final int hash = hashes[left];
+    hashes[left] = hashes[right];
+    hashes[right] = hash;
+    swapValues(left, right);
+  }
+}
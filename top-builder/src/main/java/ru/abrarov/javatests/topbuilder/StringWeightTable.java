@@ -0,0 +1,299 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hash table of positive weights of strings, the same as {@link StringCountTable} (see {@link StringHashTable}) but
+ * with double weights which may be scaled or reduced all at once.
+ * <p>
+ * Weights less than {@link Double#MIN_NORMAL} are treated as zero: keys which weights become less than that are
+ * removed.
+ */
+final class StringWeightTable extends StringHashTable {
+
+  private double[] weights;
+
+  StringWeightTable() {
+    super(0);
+    weights = new double[capacity + 1];
+  }
+
+  /**
+   * Adds weight to the key.
+   *
+   * @param key    Key to add. Nullable.
+   * @param weight Weight to add. Must be >= {@link Double#MIN_NORMAL} and finite.
+   */
+  void add(String key, double weight) {
+    if (key == null) {
+      if (weights[capacity] == 0) {
+        ++size;
+      }
+      weights[capacity] += weight;
+      return;
+    }
+    final int hash = hash(key);
+    final int slot = find(key, hash);
+    if (keys[slot] != null) {
+      weights[slot] += weight;
+      accessed(slot, hash);
+      return;
+    }
+    keys[slot] = key;
+    hashes[slot] = hash;
+    weights[slot] = weight;
+    inserted(slot, hash);
+  }
+
+  /**
+   * Adds weight to the key if the key is in the table.
+   *
+   * @param key    Key to add. Nullable.
+   * @param weight Weight to add. Must be >= {@link Double#MIN_NORMAL} and finite.
+   * @return True if the key is in the table, false if nothing was changed.
+   */
+  boolean increment(String key, double weight) {
+    if (key == null) {
+      if (weights[capacity] == 0) {
+        return false;
+      }
+      weights[capacity] += weight;
+      return true;
+    }
+    final int hash = hash(key);
+    final int slot = find(key, hash);
+    final boolean found = keys[slot] != null;
+    if (found) {
+      weights[slot] += weight;
+    }
+    accessed(slot, hash);
+    return found;
+  }
+
+  /**
+   * Gets weight of the key.
+   *
+   * @param key Key to search for. Nullable.
+   * @return Weight of the key or 0 if the key isn't in the table.
+   */
+  double get(String key) {
+    if (key == null) {
+      return weights[capacity];
+    }
+    final int slot = find(key, hash(key));
+    return keys[slot] == null ? 0 : weights[slot];
+  }
+
+  /**
+   * Multiplies weights of all keys by the factor and removes the keys which weights become negligible.
+   *
+   * @param factor Factor of weights. Must be >= 0.
+   */
+  void scale(double factor) {
+    assert factor >= 0 : "factor must be >= 0";
+
+    for (int slot = 0; slot <= capacity; ++slot) {
+      weights[slot] *= factor;
+    }
+    removeNegligible();
+  }
+
+  /**
+   * Subtracts the delta from weights of all keys and removes the keys which weights become negligible, i.e. the keys
+   * which weights are not greater than the delta.
+   *
+   * @param delta Value to subtract. Must be >= 0.
+   */
+  void subtract(double delta) {
+    assert delta >= 0 : "delta must be >= 0";
+
+    for (int slot = 0; slot <= capacity; ++slot) {
+      if (weights[slot] != 0) {
+        weights[slot] = Math.max(weights[slot] - delta, 0);
+      }
+    }
+    removeNegligible();
+  }
+
+  /**
+   * Finds the weight which isn't greater than weights of the given fraction of keys. The weight is selected by
+   * quickselect in expected O(number of keys) time.
+   *
+   * @param fraction Fraction of keys. Must be in [0; 1].
+   * @return Weight of the key which rank (ascending) is the given fraction of the number of keys, or 0 if the table is
+   * empty.
+   */
+  double quantile(double fraction) {
+    assert fraction >= 0 && fraction <= 1 : "fraction must be in [0; 1]";
+
+    if (size == 0) {
+      return 0;
+    }
+    final double[] values = new double[size];
+    int index = 0;
+    for (int slot = 0; slot <= capacity; ++slot) {
+      if (weights[slot] != 0) {
+        values[index++] = weights[slot];
+      }
+    }
+    return select(values, Math.min((int) (fraction * size), size - 1));
+  }
+
+  /**
+   * Builds the list of the keys having the greatest weights in the order of {@link Items#SCORE_ORDER}.
+   *
+   * @param size   The maximum size of the list to be built. Must be >= 0.
+   * @param factor Factor of weights to get scores of items. Must be >= 0.
+   * @return List of the keys having the greatest weights, with scores equal to their weights multiplied by the factor.
+   */
+  List<ScoredItem> top(int size, double factor) {
+    assert size >= 0 : "Size of the list must be >= 0";
+
+    final int heapCapacity = Math.min(size, this.size);
+    if (heapCapacity == 0) {
+      return Collections.emptyList();
+    }
+    // Min-heap of slots: the root is the worst of the selected slots
+    final int[] heap = new int[heapCapacity];
+    int heapSize = 0;
+    for (int slot = 0; slot <= capacity; ++slot) {
+      if (weights[slot] == 0) {
+        continue;
+      }
+      if (heapSize < heapCapacity) {
+        heap[heapSize] = slot;
+        siftUp(heap, heapSize++);
+      } else if (compareSlots(slot, heap[0]) < 0) {
+        heap[0] = slot;
+        siftDown(heap, 0, heapSize);
+      }
+    }
+    final ScoredItem[] items = new ScoredItem[heapSize];
+    while (heapSize > 0) {
+      final int slot = heap[0];
+      items[--heapSize] = Items.newScoredItem(keys[slot], weights[slot] * factor);
+      heap[0] = heap[heapSize];
+      siftDown(heap, 0, heapSize);
+    }
+    final List<ScoredItem> result = new ArrayList<ScoredItem>(items.length);
+    Collections.addAll(result, items);
+    return result;
+  }
+
+  private void removeNegligible() {
+    if (weights[capacity] < Double.MIN_NORMAL && weights[capacity] != 0) {
+      weights[capacity] = 0;
+      --size;
+    }
+    boolean removed = false;
+    for (int slot = 0; slot < capacity; ++slot) {
+      if (keys[slot] != null && weights[slot] < Double.MIN_NORMAL) {
+        keys[slot] = null;
+        weights[slot] = 0;
+        --size;
+        removed = true;
+      }
+    }
+    if (removed) {
+      compact();
+    }
+  }
+
+  /**
+   * Compares slots in the order of {@link Items#SCORE_ORDER}.
+   */
+  private int compareSlots(int left, int right) {
+    return Items.compare(weights[left], keys[left], weights[right], keys[right]);
+  }
+
+  private void siftUp(int[] heap, int index) {
+    final int slot = heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) >>> 1;
+      if (compareSlots(heap[parent], slot) >= 0) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = slot;
+  }
+
+  private void siftDown(int[] heap, int index, int heapSize) {
+    final int slot = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && compareSlots(heap[child + 1], heap[child]) > 0) {
+        ++child;
+      }
+      if (compareSlots(heap[child], slot) <= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = slot;
+  }
+
+  @Override
+  Object replaceValues(int length) {
+    final double[] oldWeights = weights;
+    weights = new double[length];
+    return oldWeights;
+  }
+
+  @Override
+  void moveValue(Object oldValues, int from, int to) {
+    weights[to] = ((double[]) oldValues)[from];
+  }
+
+  @Override
+  void swapValues(int left, int right) {
+    final double weight = weights[left];
+    weights[left] = weights[right];
+    weights[right] = weight;
+  }
+
+  /**
+   * Finds the element which would be at the given index if the array was sorted (Hoare's quickselect with the middle
+   * pivot). The array is reordered.
+   */
+  private static double select(double[] values, int rank) {
+    int left = 0;
+    int right = values.length - 1;
+    while (left < right) {
+      final double pivot = values[(left + right) >>> 1];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          ++i;
+        }
+        while (values[j] > pivot) {
+          --j;
+        }
+        if (i <= j) {
+          final double value = values[i];
+          values[i] = values[j];
+          values[j] = value;
+          ++i;
+          --j;
+        }
+      }
+      // Elements in (j; i) are equal to the pivot
+      if (rank <= j) {
+        right = j;
+      } else if (rank >= i) {
+        left = i;
+      } else {
+        return values[rank];
+      }
+    }
+    return values[rank];
+  }
+}
@@ -0,0 +1,115 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Analyzer answering threshold (iceberg) queries: which values have frequency not less than the given fraction phi of
+ * all values. Values are counted in one pass with Misra-Gries algorithm in place in {@link StringCountTable} of
+ * m = ceil(1 / epsilon) counters, where epsilon <= phi is the allowed error fraction: a value missing in the full
+ * table causes subtraction of the minimum count from all counters (removing the counters which become zero) instead of
+ * insertion, see {@link BudgetedFrequencyAnalyzer}. Each subtraction of d removes at least d * m + 1 counted values, so
+ * the total subtracted count (the maximum error) is less than epsilon * n, where n is the number of values. Memory
+ * consumption is O(1 / epsilon) regardless of the number of unique values.
+ * <p>
+ * The one-pass result (see {@link #analyze}) has no false negatives, and its false positives have frequencies not less
+ * than (phi - epsilon) * n. If the source can be read again, the candidates may be counted exactly with the second pass
+ * (see {@link #verify}) to remove false positives.
+ *
+ * @see ThresholdList
+ */
+public class ThresholdFrequencyAnalyzer {
+
+  private final double threshold;
+  private final int counters;
+
+  /**
+   * Creates analyzer with the allowed error fraction equal to the threshold.
+   *
+   * @param threshold Fraction phi of all values: the minimum frequency of queried values is ceil(phi * n). Must be in
+   *                  (0; 1].
+   */
+  public ThresholdFrequencyAnalyzer(double threshold) {
+    this(threshold, threshold);
+  }
+
+  /**
+   * Creates analyzer.
+   *
+   * @param threshold Fraction phi of all values: the minimum frequency of queried values is ceil(phi * n). Must be in
+   *                  (0; 1].
+   * @param maxError  Allowed error fraction epsilon. Must be in (0; threshold]. Smaller error means more counters and
+   *                  less false positives.
+   */
+  public ThresholdFrequencyAnalyzer(double threshold, double maxError) {
+    assert threshold > 0 && threshold <= 1 : "threshold must be in (0; 1]";
+    assert maxError > 0 && maxError <= threshold : "maxError must be in (0; threshold]";
+
+    this.threshold = threshold;
+    this.counters = (int) Math.min(Math.ceil(1 / maxError), Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Finds the values which frequency may be not less than the threshold in one pass.
+   *
+   * @param values Source values to be analyzed. Null iterator values are permitted.
+   * @return Candidates with error bounds of their frequencies, including all values which frequency is not less than
+   * the threshold.
+   */
+  public ThresholdList analyze(Iterator<String> values) {
+    final StringCountTable table = new StringCountTable(counters);
+    long valueCount = 0;
+    int maxError = 0;
+    while (values.hasNext()) {
+      final String value = values.next();
+      ++valueCount;
+      if (table.increment(value)) {
+        continue;
+      }
+      if (table.size() < counters) {
+        table.add(value);
+      } else {
+        maxError += table.subtractMinimum();
+      }
+    }
+
+    final int minFrequency = minFrequency(valueCount);
+    final List<ApproximateItem> items = new ArrayList<ApproximateItem>();
+    for (FrequencyAnalyzer.Item item : table.top(table.size())) {
+      if ((long) item.frequency() + maxError < minFrequency) {
+        break;
+      }
+      items.add(Items.newApproximateItem(item.value(), item.frequency(), item.frequency() + maxError));
+    }
+    return new ThresholdList(Collections.unmodifiableList(items), valueCount, minFrequency, maxError);
+  }
+
+  /**
+   * Counts the candidates exactly with the second pass over the same values and removes false positives.
+   *
+   * @param values     Source values, the same as analyzed by {@link #analyze}.
+   * @param candidates Result of {@link #analyze}.
+   * @return Exact list of the values which frequency is not less than the threshold.
+   */
+  public static ThresholdList verify(Iterator<String> values, ThresholdList candidates) {
+    final List<String> candidateValues = new ArrayList<String>(candidates.items().size());
+    for (ApproximateItem item : candidates.items()) {
+      candidateValues.add(item.value());
+    }
+    final int[] counts = StringCountTable.countCandidates(candidateValues, values);
+    final List<ApproximateItem> items = new ArrayList<ApproximateItem>(counts.length);
+    for (int i = 0; i < counts.length; ++i) {
+      if (counts[i] >= candidates.threshold()) {
+        items.add(Items.newApproximateItem(candidateValues.get(i), counts[i], counts[i]));
+      }
+    }
+    Collections.sort(items, Items.FREQUENCY_ORDER);
+    return new ThresholdList(Collections.unmodifiableList(items), candidates.valueCount(), candidates.threshold(), 0);
+  }
+
+  private int minFrequency(long valueCount) {
+    return (int) Math.min(Math.max(1, (long) Math.ceil(threshold * valueCount)), Integer.MAX_VALUE);
+  }
+}
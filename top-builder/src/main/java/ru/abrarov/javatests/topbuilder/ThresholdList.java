@@ -0,0 +1,72 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.List;
+
+/**
+ * Result of threshold (iceberg) query: the values which frequency may be not less than the threshold, with error
+ * bounds of their frequencies.
+ *
+ * @see ThresholdFrequencyAnalyzer
+ */
+public final class ThresholdList {
+
+  private final List<ApproximateItem> items;
+  private final long valueCount;
+  private final int threshold;
+  private final int maxError;
+
+  ThresholdList(List<ApproximateItem> items, long valueCount, int threshold, int maxError) {
+    this.items = items;
+    this.valueCount = valueCount;
+    this.threshold = threshold;
+    this.maxError = maxError;
+  }
+
+  /**
+   * Gets items which upper bounds of frequencies are not less than the threshold, ordered by their lower bounds
+   * (descending), then by values (ascending). Each value which frequency is not less than the threshold is in the
+   * list. Items which lower bounds are less than the threshold may be false positives, but their frequencies are not
+   * less than the threshold minus the maximum error.
+   *
+   * @return Items of the list.
+   */
+  public List<ApproximateItem> items() {
+    return items;
+  }
+
+  /**
+   * Gets the number of analyzed values.
+   *
+   * @return Number of values.
+   */
+  public long valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the threshold of frequency.
+   *
+   * @return The minimum frequency of the queried values.
+   */
+  public int threshold() {
+    return threshold;
+  }
+
+  /**
+   * Gets the maximum error of counting: frequency of each value is undercounted by at most this error.
+   *
+   * @return The maximum error of counting, 0 if the list is exact.
+   */
+  public int maxError() {
+    return maxError;
+  }
+
+  /**
+   * Checks if the list is exact, i.e. it contains the values which frequency is not less than the threshold only.
+   *
+   * @return True if there are no false positives and frequencies of items are exact.
+   */
+  public boolean isExact() {
+    return maxError == 0;
+  }
+}
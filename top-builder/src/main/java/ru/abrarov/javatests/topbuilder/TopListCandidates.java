@@ -0,0 +1,101 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Candidates of the top list refreshed incrementally: the values of the previous top list and the values counted since
+ * the previous refresh. It serves counters where a value which isn't in the previous top list and wasn't counted since
+ * then can't get ahead of the values of the previous top list (see {@link IncrementalFrequencyCounter} and
+ * {@link DecayedFrequencyCounter}), so the top list is refreshed in time proportional to the number of values counted
+ * since the previous refresh. If more values than unique values are counted since the previous refresh then tracking of
+ * counted values stops and the top list should be selected from all values instead.
+ * <p>
+ * Instances are not thread safe.
+ */
+final class TopListCandidates {
+
+  private final List<String> countedSinceRefresh = new ArrayList<String>();
+  private List<String> topValues = Collections.emptyList();
+  private boolean refreshFromAll;
+
+  /**
+   * Tracks the counted value.
+   *
+   * @param value            Counted value. Nullable.
+   * @param uniqueValueCount Number of unique values counted so far.
+   */
+  void counted(String value, int uniqueValueCount) {
+    if (refreshFromAll) {
+      return;
+    }
+    if (countedSinceRefresh.size() < uniqueValueCount) {
+      countedSinceRefresh.add(value);
+    } else {
+      refreshFromAll();
+    }
+  }
+
+  /**
+   * Stops tracking of counted values till the next refresh, e.g. when counts of values not tracked here change.
+   */
+  void refreshFromAll() {
+    countedSinceRefresh.clear();
+    refreshFromAll = true;
+  }
+
+  /**
+   * Checks if the top list should be selected from all values.
+   *
+   * @return True if the candidates don't cover all values which may be in the top list.
+   */
+  boolean isRefreshFromAll() {
+    return refreshFromAll;
+  }
+
+  /**
+   * Checks if any value was counted since the previous refresh.
+   *
+   * @return True if the previous top list may be outdated.
+   */
+  boolean isChanged() {
+    return refreshFromAll || !countedSinceRefresh.isEmpty();
+  }
+
+  /**
+   * Gets the candidates of the top list. Valid unless {@link #isRefreshFromAll()}.
+   *
+   * @return Unique values of the previous top list and values counted since the previous refresh.
+   */
+  List<String> values() {
+    // Deduplicate candidates with a small table to not depend on the number of all values
+    final StringCountTable candidates = new StringCountTable(topValues.size() + countedSinceRefresh.size());
+    final List<String> values = new ArrayList<String>();
+    for (String value : topValues) {
+      addCandidate(candidates, values, value);
+    }
+    for (String value : countedSinceRefresh) {
+      addCandidate(candidates, values, value);
+    }
+    return values;
+  }
+
+  /**
+   * Starts tracking of values counted since the refresh.
+   *
+   * @param topValues Values of the refreshed top list.
+   */
+  void refreshed(List<String> topValues) {
+    this.topValues = topValues;
+    countedSinceRefresh.clear();
+    refreshFromAll = false;
+  }
+
+  private static void addCandidate(StringCountTable candidates, List<String> values, String value) {
+    if (candidates.get(value) == 0) {
+      candidates.add(value);
+      values.add(value);
+    }
+  }
+}
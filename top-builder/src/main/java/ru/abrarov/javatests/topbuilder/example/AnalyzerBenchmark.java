@@ -0,0 +1,138 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.AdaptiveFrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzers;
+import ru.abrarov.javatests.topbuilder.NaiveFrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.OpenAddressingFrequencyAnalyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sample app comparing throughput of FrequencyAnalyzer implementations on uniform, Zipf, unique and colliding
+ * workloads. Uniform, Zipf and colliding workloads are lists of references to the same unique strings, like values
+ * decoded once and passed many times. Unique strings of the colliding workload have the same hash code (like crafted
+ * by an attacker). Fresh variants of the uniform and colliding workloads are lists of distinct String instances, like
+ * values decoded from client input one by one, so hash codes are not cached and contents are read on each access.
+ * Throughput of the colliding workloads is also reported relative to the uniform workloads of the same kind, and
+ * throughput of the adaptive analyzer relative to the best of the other implementations.
+ * <p>
+ * Commandline parameters: &lt;unique value number&gt; &lt;total value number&gt; &lt;Zipf exponent&gt; &lt;top list
+ * size&gt; &lt;rounds&gt;
+ *
+ * @see FrequencyAnalyzer
+ */
+public class AnalyzerBenchmark {
+
+  private static final int MIN_VALUE_LENGTH = 4;
+  private static final int MAX_VALUE_LENGTH = 32;
+
+  public static void main(String[] args) {
+    final int uniqueValueCount = parseIntArg(args, 0, 100000);
+    final int totalValueCount = parseIntArg(args, 1, 10000000);
+    final double zipfExponent = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+    final int topListSize = parseIntArg(args, 3, 10);
+    final int rounds = parseIntArg(args, 4, 5);
+
+    final Random random = new Random(1);
+    final List<String> uniqueValues = new RandomSourceDataProvider().buildRandomValues(MIN_VALUE_LENGTH,
+        MAX_VALUE_LENGTH, uniqueValueCount, uniqueValueCount);
+    final Map<String, List<String>> workloads = new LinkedHashMap<String, List<String>>();
+    workloads.put("uniform", RandomUtils.randomFilledList(uniqueValues, totalValueCount, random));
+    workloads.put(String.format("zipf(%s)", zipfExponent),
+        RandomUtils.zipfFilledList(uniqueValues, totalValueCount, zipfExponent, random));
+    workloads.put("unique", new RandomSourceDataProvider().buildRandomValues(MIN_VALUE_LENGTH, MAX_VALUE_LENGTH,
+        totalValueCount, totalValueCount));
+    workloads.put("colliding",
+        RandomUtils.randomFilledList(collidingValues(uniqueValueCount), totalValueCount, random));
+    workloads.put("uniform-fresh", freshCopies(workloads.get("uniform")));
+    workloads.put("colliding-fresh", freshCopies(workloads.get("colliding")));
+    final Map<String, String> uniformWorkloadOf = new HashMap<String, String>();
+    uniformWorkloadOf.put("colliding", "uniform");
+    uniformWorkloadOf.put("colliding-fresh", "uniform-fresh");
+    final Map<String, Double> throughputs = new HashMap<String, Double>();
+
+    final Map<String, FrequencyAnalyzer> analyzers = new LinkedHashMap<String, FrequencyAnalyzer>();
+    analyzers.put("naive", new NaiveFrequencyAnalyzer());
+    analyzers.put("open-addressing", new OpenAddressingFrequencyAnalyzer());
+    analyzers.put("auto", FrequencyAnalyzers.auto());
+
+    System.out.println(String.format("Unique values: %d, total values: %d", uniqueValueCount, totalValueCount));
+    for (Map.Entry<String, List<String>> workload : workloads.entrySet()) {
+      // Rounds of the analyzers are interleaved, so drift of JIT, GC and CPU state during the workload affects all of
+      // them alike instead of the analyzers measured last
+      final Map<String, Long> bestDurations = new HashMap<String, Long>();
+      for (int i = 0; i < rounds; ++i) {
+        for (Map.Entry<String, FrequencyAnalyzer> analyzer : analyzers.entrySet()) {
+          final long startTime = System.nanoTime();
+          analyzer.getValue().buildTopFrequentList(workload.getValue().iterator(), topListSize);
+          final long duration = System.nanoTime() - startTime;
+          final Long bestDuration = bestDurations.get(analyzer.getKey());
+          bestDurations.put(analyzer.getKey(), bestDuration == null ? duration : Math.min(bestDuration, duration));
+        }
+      }
+      double bestThroughput = 0;
+      for (Map.Entry<String, FrequencyAnalyzer> analyzer : analyzers.entrySet()) {
+        final long bestDuration = bestDurations.get(analyzer.getKey());
+        final double throughput = workload.getValue().size() * 1e3 / bestDuration;
+        throughputs.put(workload.getKey() + '/' + analyzer.getKey(), throughput);
+        final StringBuilder line = new StringBuilder(String.format("%-16s %-16s %8.2f M values/sec",
+            workload.getKey(), analyzer.getKey(), throughput));
+        final String uniformWorkload = uniformWorkloadOf.get(workload.getKey());
+        if (uniformWorkload != null) {
+          line.append(String.format(", %.1f%% of %s", throughput * 100
+              / throughputs.get(uniformWorkload + '/' + analyzer.getKey()), uniformWorkload));
+        }
+        if (analyzer.getValue() instanceof AdaptiveFrequencyAnalyzer) {
+          line.append(String.format(", %.1f%% of the best, selected: %s", throughput * 100 / bestThroughput,
+              ((AdaptiveFrequencyAnalyzer) analyzer.getValue()).lastSelection().engine()));
+        } else {
+          bestThroughput = Math.max(bestThroughput, throughput);
+        }
+        System.out.println(line);
+      }
+    }
+  }
+
+  /**
+   * Builds strings having the same hash code: concatenations of the same number of "Aa" and "BB" blocks.
+   */
+  private static List<String> collidingValues(int count) {
+    int blocks = 1;
+    while (1L << blocks < count) {
+      ++blocks;
+    }
+    final List<String> values = new ArrayList<String>(count);
+    for (int i = 0; i < count; ++i) {
+      final StringBuilder value = new StringBuilder(2 * blocks);
+      for (int j = 0; j < blocks; ++j) {
+        value.append((i >>> j & 1) == 0 ? "Aa" : "BB");
+      }
+      values.add(value.toString());
+    }
+    return values;
+  }
+
+  /**
+   * Copies each value to a new String instance, so no instance and no cached hash code is shared.
+   */
+  private static List<String> freshCopies(List<String> values) {
+    final List<String> copies = new ArrayList<String>(values.size());
+    for (String value : values) {
+      copies.add(new String(value.toCharArray()));
+    }
+    return copies;
+  }
+
+  private static int parseIntArg(String[] args, int index, int defaultValue) {
+    if (args.length > index) {
+      return Integer.parseInt(args[index]);
+    }
+    return defaultValue;
+  }
+}
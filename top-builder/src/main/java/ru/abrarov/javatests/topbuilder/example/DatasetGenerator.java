@@ -0,0 +1,247 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.Hashing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generator of text files of random lines matching {@code [a-zA-Z0-9]{min,max}} with the same parameters as
+ * polygon_generator: if the number of unique values is less than the number of lines then the unique values are
+ * generated first and each line is a random one of them, otherwise each line is generated independently (so lines are
+ * almost unique).
+ * <p>
+ * Lines are generated in parallel in chunks of about {@link #CHUNK_SIZE} bytes. Each chunk has its own random
+ * generator seeded from the seed of the file and the index of the chunk, and chunks are written in the order of their
+ * indices, so the output depends only on the parameters and the seed, not on the number of threads. Chunks are written
+ * with a {@link FileChannel} as whole buffers.
+ * <p>
+ * Commandline parameters: &lt;output file&gt; [&lt;number of lines&gt; [&lt;number of unique values&gt; [&lt;max
+ * length of line&gt; [&lt;min length of line&gt; [&lt;seed&gt; [&lt;threads&gt;]]]]]], the defaults are the same as
+ * of polygon_generator: 1000000 lines, 3/4 of lines are unique, length is in [0; 100], the default seed is 0 and the
+ * default number of threads is the number of available processors.
+ */
+public class DatasetGenerator {
+
+  static final int CHUNK_SIZE = 4 << 20;
+
+  private static final byte[] ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".getBytes();
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final long LINES_STREAM = 1;
+  private static final long UNIQUE_VALUES_STREAM = 2;
+
+  private final long lineCount;
+  private final long uniqueValueCount;
+  private final int minLength;
+  private final int maxLength;
+  private final long seed;
+
+  /**
+   * Creates generator.
+   *
+   * @param lineCount        Number of lines to generate. Must be >= 0.
+   * @param uniqueValueCount Number of unique values if it's less than lineCount. Must be > 0 if it's less than
+   *                         lineCount and must be <= Integer.MAX_VALUE - 8 then.
+   * @param minLength        Minimum length of line. Must be >= 0 and <= maxLength.
+   * @param maxLength        Maximum length of line. Must be >= minLength and < CHUNK_SIZE.
+   * @param seed             Seed of random generators.
+   */
+  public DatasetGenerator(long lineCount, long uniqueValueCount, int minLength, int maxLength, long seed) {
+    assert lineCount >= 0 : "lineCount must be >= 0";
+    assert uniqueValueCount >= lineCount || (uniqueValueCount > 0 && uniqueValueCount <= Integer.MAX_VALUE - 8)
+        : "uniqueValueCount must be in (0; Integer.MAX_VALUE - 8] if it's less than lineCount";
+    assert minLength >= 0 : "minLength must be >= 0";
+    assert minLength <= maxLength : "minLength must be <= maxLength";
+    assert maxLength < CHUNK_SIZE : "maxLength must be < " + CHUNK_SIZE;
+
+    this.lineCount = lineCount;
+    this.uniqueValueCount = uniqueValueCount;
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.seed = seed;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: DatasetGenerator <output file> [<number of lines> [<number of unique values> "
+          + "[<max length of line> [<min length of line> [<seed> [<threads>]]]]]]");
+      System.exit(1);
+    }
+    final long lineCount = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+    final long uniqueValueCount = args.length > 2 ? Long.parseLong(args[2]) : lineCount * 3 / 4;
+    final int maxLength = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+    final int minLength = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+    final long seed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+    final int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+    final long startTime = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final long size;
+    try {
+      size = new DatasetGenerator(lineCount, uniqueValueCount, minLength, maxLength, seed).generate(
+          new File(args[0]), executor, 2 * threads);
+    } finally {
+      executor.shutdownNow();
+    }
+    final long durationInMillis = System.currentTimeMillis() - startTime;
+    System.out.println(String.format("Generated %d lines (%d bytes) in %d.%03d sec", lineCount, size,
+        durationInMillis / 1000, durationInMillis % 1000));
+  }
+
+  /**
+   * Generates file. Existing file is overwritten.
+   *
+   * @param file             Output file.
+   * @param executor         Executor of generating tasks. Isn't shut down.
+   * @param maxPendingChunks The maximum number of chunks being generated at the same time. Must be > 0.
+   * @return Size of the generated file in bytes.
+   * @throws IOException If writing of the file fails.
+   */
+  public long generate(File file, ExecutorService executor, int maxPendingChunks) throws IOException {
+    assert maxPendingChunks > 0 : "maxPendingChunks must be > 0";
+
+    final byte[][] uniqueValues = uniqueValueCount < lineCount
+        ? generateUniqueValues(executor, maxPendingChunks) : null;
+    final long linesPerChunk = Math.max(1, CHUNK_SIZE / (maxLength + 1));
+    final Deque<Future<ByteBuffer>> pendingChunks = new ArrayDeque<Future<ByteBuffer>>();
+    final FileChannel channel = new FileOutputStream(file).getChannel();
+    try {
+      long size = 0;
+      long chunkIndex = 0;
+      while (true) {
+        while (pendingChunks.size() < maxPendingChunks && chunkIndex * linesPerChunk < lineCount) {
+          final long chunkLineCount = Math.min(linesPerChunk, lineCount - chunkIndex * linesPerChunk);
+          pendingChunks.add(executor.submit(new LinesChunk(chunkLineCount,
+              chunkSeed(seed, LINES_STREAM, chunkIndex), uniqueValues)));
+          ++chunkIndex;
+        }
+        final Future<ByteBuffer> future = pendingChunks.poll();
+        if (future == null) {
+          break;
+        }
+        final ByteBuffer buffer = get(future);
+        size += buffer.remaining();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      return size;
+    } finally {
+      for (Future<ByteBuffer> future : pendingChunks) {
+        future.cancel(true);
+      }
+      channel.close();
+    }
+  }
+
+  private byte[][] generateUniqueValues(ExecutorService executor, int maxPendingChunks) throws IOException {
+    final int count = (int) uniqueValueCount;
+    final int valuesPerChunk = Math.max(1, CHUNK_SIZE / (maxLength + 1));
+    final byte[][] values = new byte[count][];
+    final List<Future<?>> pendingChunks = new ArrayList<Future<?>>();
+    for (int start = 0, chunkIndex = 0; start < count; start += valuesPerChunk, ++chunkIndex) {
+      if (pendingChunks.size() >= maxPendingChunks) {
+        get(pendingChunks.remove(0));
+      }
+      final int chunkStart = start;
+      final int chunkEnd = (int) Math.min((long) start + valuesPerChunk, count);
+      final long chunkSeed = chunkSeed(seed, UNIQUE_VALUES_STREAM, chunkIndex);
+      pendingChunks.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          final SplittableRandom random = new SplittableRandom(chunkSeed);
+          for (int i = chunkStart; i < chunkEnd; ++i) {
+            final byte[] value = new byte[randomLength(random)];
+            for (int j = 0; j < value.length; ++j) {
+              value[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            values[i] = value;
+          }
+        }
+      }));
+    }
+    for (Future<?> future : pendingChunks) {
+      get(future);
+    }
+    return values;
+  }
+
+  private int randomLength(SplittableRandom random) {
+    return minLength == maxLength ? minLength : minLength + random.nextInt(maxLength - minLength + 1);
+  }
+
+  /**
+   * Calculates seed of chunk. Seeds of adjacent chunks are mixed with the finalizer of SplitMix64, so the random
+   * sequences of chunks are not correlated.
+   *
+   * @param seed   Seed of the file.
+   * @param stream Stream of chunks, i.e. lines or unique values.
+   * @param index  Index of the chunk in the stream.
+   * @return Seed of the chunk.
+   */
+  static long chunkSeed(long seed, long stream, long index) {
+    return Hashing.mix64(Hashing.mix64(seed + stream * GOLDEN_GAMMA) + (index + 1) * GOLDEN_GAMMA);
+  }
+
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for generated data");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to generate data", e.getCause());
+    }
+  }
+
+  /**
+   * Task generating chunk of lines.
+   */
+  private class LinesChunk implements Callable<ByteBuffer> {
+
+    private final long lineCount;
+    private final long seed;
+    private final byte[][] uniqueValues;
+
+    LinesChunk(long lineCount, long seed, byte[][] uniqueValues) {
+      this.lineCount = lineCount;
+      this.seed = seed;
+      this.uniqueValues = uniqueValues;
+    }
+
+    @Override
+    public ByteBuffer call() {
+      final SplittableRandom random = new SplittableRandom(seed);
+      final byte[] data = new byte[(int) (lineCount * (maxLength + 1))];
+      int length = 0;
+      for (long i = 0; i < lineCount; ++i) {
+        if (uniqueValues != null) {
+          final byte[] value = uniqueValues[random.nextInt(uniqueValues.length)];
+          System.arraycopy(value, 0, data, length, value.length);
+          length += value.length;
+        } else {
+          for (int j = randomLength(random); j > 0; --j) {
+            data[length++] = ALPHABET[random.nextInt(ALPHABET.length)];
+          }
+        }
+        data[length++] = '\n';
+      }
+      return ByteBuffer.wrap(data, 0, length);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.IncrementalFrequencyCounter;
+import ru.abrarov.javatests.topbuilder.io.FileTail;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Sample app following a growing file (like tail -F) and printing the top list whenever new lines are appended. Only
+ * the appended lines are read and counted on each refresh.
+ * <p>
+ * Commandline parameters: &lt;file&gt; [&lt;top list size&gt; [&lt;poll interval in milliseconds&gt;]]
+ *
+ * @see FileTail
+ * @see IncrementalFrequencyCounter
+ */
+public class FollowExample {
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.err.println("Usage: FollowExample <file> [<top list size> [<poll interval in milliseconds>]]");
+      System.exit(1);
+    }
+    final int topListSize = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final long pollInterval = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+    final IncrementalFrequencyCounter counter = new IncrementalFrequencyCounter(topListSize);
+    final FileTail tail = new FileTail(Paths.get(args[0]));
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        final long startTime = System.nanoTime();
+        final List<String> lines = tail.poll();
+        if (!lines.isEmpty()) {
+          counter.addAll(lines);
+          final List<FrequencyAnalyzer.Item> top = counter.topFrequentList();
+          System.out.println(String.format("%d new lines, %d lines total, refreshed in %.3f ms", lines.size(),
+              counter.valueCount(), (System.nanoTime() - startTime) / 1e6));
+          for (FrequencyAnalyzer.Item item : top) {
+            System.out.println(item);
+          }
+        }
+        Thread.sleep(pollInterval);
+      }
+    } finally {
+      tail.close();
+    }
+  }
+}
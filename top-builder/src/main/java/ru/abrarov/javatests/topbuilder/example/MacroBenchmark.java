@@ -0,0 +1,439 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.io.MultiMemberGzipOutputStream;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * End-to-end benchmark suite sweeping the number of values, the number of distinct values, the top list size and the
+ * number of threads (used to read file inputs) for the given engines over generated (in-memory) and file (multi-member
+ * gzip) inputs. Each run is executed by {@link MacroBenchmarkRun} in a dedicated JVM. Throughput, peak RSS, peak heap
+ * and GC time of the runs are written to CSV file and compared with the baseline CSV file (if it exists): the suite
+ * fails (exits with code 2) if throughput of a run is lower or peak RSS of a run is higher than the baseline by more
+ * than the threshold. Runs absent in the baseline are not compared. Results of JVM runs vary a lot (JIT decisions,
+ * noisy neighbours), so a regressed run is repeated in new JVM up to the given number of times and the attempt having
+ * the best throughput is taken.
+ * <p>
+ * Selection of the engine by auto is checked too: the suite fails if throughput of auto is lower than throughput of the
+ * best of the other engines run for the same input, numbers of values and distinct values, top list size and number of
+ * threads by more than the auto threshold. The check doesn't need the baseline, it's done if auto is swept after at
+ * least one of the other engines. The baseline is checked the same way, so a baseline where auto lags can't be
+ * recorded unnoticed.
+ * <p>
+ * Commandline parameters are name=value pairs (comma separated lists where applicable), all are optional:
+ * <ul>
+ * <li>inputs - generated and/or file, default: generated,file</li>
+ * <li>engines - naive, open-addressing and/or auto, default: naive,open-addressing,auto</li>
+ * <li>values - numbers of values, default: 1000000,4000000</li>
+ * <li>distinct - numbers of distinct values (greater than the number of values are skipped), default:
+ * 1000,1000000</li>
+ * <li>k - top list sizes, default: 10,1000</li>
+ * <li>threads - numbers of threads reading file inputs (generated inputs use 1 thread), default: 1,4</li>
+ * <li>rounds - number of measured rounds of a run (the best is taken), default: 3</li>
+ * <li>heap - maximum heap size of JVM of a run, default: 2g</li>
+ * <li>seed - seed of generated values, default: 1</li>
+ * <li>work - directory for generated file inputs, default: top-builder-benchmark in java.io.tmpdir</li>
+ * <li>output - CSV file of results, default: target/benchmark/results.csv</li>
+ * <li>baseline - CSV file of baseline results, default: benchmark/baseline.csv</li>
+ * <li>threshold - allowed relative regression, default: 0.25</li>
+ * <li>auto-threshold - allowed relative lag of auto behind the best of the other engines, default: 0.1</li>
+ * <li>retries - the maximum number of repeats of a regressed run, default: 2</li>
+ * </ul>
+ * Baseline is updated by copying the output file over the baseline file. Record it conservatively, e.g. take the
+ * results of each workload from the slowest of several sweeps, otherwise a lucky run makes the gate flap. Keep all
+ * engines of a workload from the same sweep, so the check of auto in the baseline compares results measured under the
+ * same conditions.
+ */
+public class MacroBenchmark {
+
+  static final String CSV_HEADER =
+      "input,engine,values,distinct,k,threads,throughput_mvps,duration_ms,peak_rss_kb,peak_heap_kb,gc_ms";
+
+  private static final String FILE_INPUT = "file";
+  private static final String AUTO_ENGINE = "auto";
+  private static final int REGRESSION_EXIT_CODE = 2;
+
+  /**
+   * Swept parameters of a run.
+   */
+  private static class Scenario {
+
+    private final String input;
+    private final String engine;
+    private final int valueCount;
+    private final int distinctCount;
+    private final int topListSize;
+    private final int threads;
+
+    private Scenario(String input, String engine, int valueCount, int distinctCount, int topListSize, int threads) {
+      this.input = input;
+      this.engine = engine;
+      this.valueCount = valueCount;
+      this.distinctCount = distinctCount;
+      this.topListSize = topListSize;
+      this.threads = threads;
+    }
+
+    /**
+     * Gets key of the scenario used to match results with the baseline.
+     *
+     * @return CSV of the swept parameters.
+     */
+    private String key() {
+      return String.format("%s,%s,%d,%d,%d,%d", input, engine, valueCount, distinctCount, topListSize, threads);
+    }
+
+    /**
+     * Gets key of the workload of the scenario used to compare engines.
+     *
+     * @return CSV of the swept parameters except the engine.
+     */
+    private String workloadKey() {
+      return String.format("%s,%d,%d,%d,%d", input, valueCount, distinctCount, topListSize, threads);
+    }
+  }
+
+  /**
+   * Measured metrics of a run.
+   */
+  private static class Result {
+
+    private final String key;
+    private final double throughput;
+    private final long durationInMillis;
+    private final long peakRssInKilobytes;
+    private final long peakHeapInKilobytes;
+    private final long gcTimeInMillis;
+
+    private Result(String key, double throughput, long durationInMillis, long peakRssInKilobytes,
+                   long peakHeapInKilobytes, long gcTimeInMillis) {
+      this.key = key;
+      this.throughput = throughput;
+      this.durationInMillis = durationInMillis;
+      this.peakRssInKilobytes = peakRssInKilobytes;
+      this.peakHeapInKilobytes = peakHeapInKilobytes;
+      this.gcTimeInMillis = gcTimeInMillis;
+    }
+
+    /**
+     * Gets engine of the run.
+     *
+     * @return Engine field of the key, see {@link Scenario#key()}.
+     */
+    private String engine() {
+      return key.split(",")[1];
+    }
+
+    /**
+     * Gets key of the workload of the run.
+     *
+     * @return The key without the engine, see {@link Scenario#workloadKey()}.
+     */
+    private String workloadKey() {
+      final int engineStart = key.indexOf(',');
+      return key.substring(0, engineStart) + key.substring(key.indexOf(',', engineStart + 1));
+    }
+
+    private String toCsv() {
+      return String.format(Locale.ROOT, "%s,%.3f,%d,%d,%d,%d", key, throughput, durationInMillis, peakRssInKilobytes,
+          peakHeapInKilobytes, gcTimeInMillis);
+    }
+
+    private static Result parseCsv(String line) {
+      final String[] fields = line.split(",");
+      if (fields.length != 11) {
+        throw new IllegalArgumentException("Invalid CSV line: " + line);
+      }
+      final StringBuilder key = new StringBuilder(fields[0]);
+      for (int i = 1; i < 6; ++i) {
+        key.append(',').append(fields[i]);
+      }
+      return new Result(key.toString(), Double.parseDouble(fields[6]), Long.parseLong(fields[7]),
+          Long.parseLong(fields[8]), Long.parseLong(fields[9]), Long.parseLong(fields[10]));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Map<String, String> parameters = parseParameters(args);
+    final List<String> inputs = parseList(parameters, "inputs", "generated,file");
+    final List<String> engines = parseList(parameters, "engines", "naive,open-addressing,auto");
+    final List<Integer> valueCounts = parseIntList(parameters, "values", "1000000,4000000");
+    final List<Integer> distinctCounts = parseIntList(parameters, "distinct", "1000,1000000");
+    final List<Integer> topListSizes = parseIntList(parameters, "k", "10,1000");
+    final List<Integer> threadCounts = parseIntList(parameters, "threads", "1,4");
+    final int rounds = Integer.parseInt(parameter(parameters, "rounds", "3"));
+    final String heap = parameter(parameters, "heap", "2g");
+    final long seed = Long.parseLong(parameter(parameters, "seed", "1"));
+    final File workDirectory = new File(parameter(parameters, "work",
+        new File(System.getProperty("java.io.tmpdir"), "top-builder-benchmark").getPath()));
+    final File output = new File(parameter(parameters, "output", "target/benchmark/results.csv"));
+    final File baseline = new File(parameter(parameters, "baseline", "benchmark/baseline.csv"));
+    final double threshold = Double.parseDouble(parameter(parameters, "threshold", "0.25"));
+    final int retries = Integer.parseInt(parameter(parameters, "retries", "2"));
+    final double autoThreshold = Double.parseDouble(parameter(parameters, "auto-threshold", "0.1"));
+    final Map<String, Result> baselineByKey = new HashMap<String, Result>();
+    final List<String> regressions = new ArrayList<String>();
+    if (baseline.isFile()) {
+      final List<Result> baselineResults = readResults(baseline);
+      for (Result result : baselineResults) {
+        baselineByKey.put(result.key, result);
+      }
+      for (String regression : checkAuto(baselineResults, autoThreshold)) {
+        regressions.add("baseline " + regression);
+      }
+    } else {
+      System.out.println("Baseline " + baseline + " doesn't exist, comparison is skipped");
+    }
+
+    final List<Scenario> scenarios = new ArrayList<Scenario>();
+    for (String input : inputs) {
+      for (int valueCount : valueCounts) {
+        for (int distinctCount : distinctCounts) {
+          if (distinctCount > valueCount) {
+            continue;
+          }
+          for (int topListSize : topListSizes) {
+            for (int threads : FILE_INPUT.equals(input) ? threadCounts : Collections.singletonList(1)) {
+              for (String engine : engines) {
+                scenarios.add(new Scenario(input, engine, valueCount, distinctCount, topListSize, threads));
+              }
+            }
+          }
+        }
+      }
+    }
+
+    final List<Result> results = new ArrayList<Result>(scenarios.size());
+    final Map<String, Result> bestEngineByWorkload = new HashMap<String, Result>();
+    for (Scenario scenario : scenarios) {
+      final String input = FILE_INPUT.equals(scenario.input)
+          ? prepareFile(workDirectory, scenario.valueCount, scenario.distinctCount, seed).getPath()
+          : MacroBenchmarkRun.GENERATED_INPUT;
+      final Result base = baselineByKey.get(scenario.key());
+      final boolean auto = AUTO_ENGINE.equals(scenario.engine);
+      final Result bestEngine = auto ? bestEngineByWorkload.get(scenario.workloadKey()) : null;
+      Result result = run(scenario, input, rounds, heap, seed);
+      List<String> scenarioRegressions = compare(base, bestEngine, result, threshold, autoThreshold);
+      for (int i = 0; i < retries && !scenarioRegressions.isEmpty(); ++i) {
+        System.out.println("Repeating regressed run " + scenario.key());
+        result = best(result, run(scenario, input, rounds, heap, seed));
+        scenarioRegressions = compare(base, bestEngine, result, threshold, autoThreshold);
+      }
+      System.out.println(result.toCsv());
+      results.add(result);
+      regressions.addAll(scenarioRegressions);
+      if (!auto) {
+        final Result previous = bestEngineByWorkload.get(scenario.workloadKey());
+        if (previous == null || result.throughput > previous.throughput) {
+          bestEngineByWorkload.put(scenario.workloadKey(), result);
+        }
+      }
+    }
+    writeResults(output, results);
+    System.out.println("Results are written to " + output);
+
+    for (String regression : regressions) {
+      System.out.println("REGRESSION: " + regression);
+    }
+    if (!regressions.isEmpty()) {
+      System.exit(REGRESSION_EXIT_CODE);
+    }
+    if (!baselineByKey.isEmpty()) {
+      System.out.println(String.format("No regressions beyond %.0f%% compared to %s", threshold * 100, baseline));
+    }
+  }
+
+  /**
+   * Runs the scenario in a dedicated JVM.
+   */
+  private static Result run(Scenario scenario, String input, int rounds, String heap, long seed)
+      throws IOException, InterruptedException {
+    final List<String> command = Arrays.asList(
+        new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(), "-Xmx" + heap, "-Xms" + heap,
+        "-cp", System.getProperty("java.class.path"), MacroBenchmarkRun.class.getName(), input, scenario.engine,
+        String.valueOf(scenario.valueCount), String.valueOf(scenario.distinctCount),
+        String.valueOf(scenario.topListSize), String.valueOf(scenario.threads), String.valueOf(rounds),
+        String.valueOf(seed));
+    final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    String resultLine = null;
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(MacroBenchmarkRun.RESULT_PREFIX)) {
+          resultLine = line.substring(MacroBenchmarkRun.RESULT_PREFIX.length());
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    final int exitCode = process.waitFor();
+    if (exitCode != 0 || resultLine == null) {
+      throw new IOException(String.format("Run %s failed with exit code %d", scenario.key(), exitCode));
+    }
+    final String[] metrics = resultLine.split(",");
+    final long durationInNanos = Long.parseLong(metrics[0]);
+    return new Result(scenario.key(), scenario.valueCount * 1e3 / durationInNanos, durationInNanos / 1000000,
+        Long.parseLong(metrics[1]), Long.parseLong(metrics[2]), Long.parseLong(metrics[3]));
+  }
+
+  /**
+   * Writes multi-member gzip file of generated values unless it exists.
+   */
+  private static File prepareFile(File workDirectory, int valueCount, int distinctCount, long seed)
+      throws IOException {
+    final File file = new File(workDirectory, String.format("values-%d-distinct-%d-seed-%d.gz", valueCount,
+        distinctCount, seed));
+    if (file.isFile()) {
+      return file;
+    }
+    if (!workDirectory.isDirectory() && !workDirectory.mkdirs()) {
+      throw new IOException("Failed to create directory " + workDirectory);
+    }
+    final File temporaryFile = new File(workDirectory, file.getName() + ".tmp");
+    final Writer writer = new OutputStreamWriter(new MultiMemberGzipOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temporaryFile))), "UTF-8");
+    try {
+      for (String value : MacroBenchmarkRun.generateValues(valueCount, distinctCount, seed)) {
+        writer.write(value);
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+    if (!temporaryFile.renameTo(file)) {
+      throw new IOException("Failed to rename " + temporaryFile + " to " + file);
+    }
+    return file;
+  }
+
+  /**
+   * Compares result of the run with the baseline and result of auto with the best of the other engines.
+   *
+   * @param base          Baseline result of the run. Nullable.
+   * @param bestEngine    Result of the fastest of the other engines for the same workload if the run is of auto.
+   *                      Nullable.
+   * @param result        Result of the run.
+   * @param threshold     Allowed relative regression.
+   * @param autoThreshold Allowed relative lag of auto behind the best engine.
+   * @return Descriptions of regressions, empty if there is nothing to compare with.
+   */
+  private static List<String> compare(Result base, Result bestEngine, Result result, double threshold,
+                                      double autoThreshold) {
+    final List<String> regressions = new ArrayList<String>(3);
+    if (bestEngine != null && result.throughput < bestEngine.throughput * (1 - autoThreshold)) {
+      regressions.add(String.format(Locale.ROOT, "%s: throughput %.3f M values/sec, best engine %s %.3f",
+          result.key, result.throughput, bestEngine.key, bestEngine.throughput));
+    }
+    if (base == null) {
+      return regressions;
+    }
+    if (result.throughput < base.throughput * (1 - threshold)) {
+      regressions.add(String.format(Locale.ROOT, "%s: throughput %.3f M values/sec, baseline %.3f", result.key,
+          result.throughput, base.throughput));
+    }
+    if (base.peakRssInKilobytes > 0 && result.peakRssInKilobytes > base.peakRssInKilobytes * (1 + threshold)) {
+      regressions.add(String.format("%s: peak RSS %d kB, baseline %d kB", result.key, result.peakRssInKilobytes,
+          base.peakRssInKilobytes));
+    }
+    return regressions;
+  }
+
+  /**
+   * Checks results of auto against the best of the other engines for the same workloads, like the sweep does.
+   *
+   * @param results       Results of a sweep, e.g. the baseline.
+   * @param autoThreshold Allowed relative lag of auto behind the best engine.
+   * @return Descriptions of regressions of auto.
+   */
+  private static List<String> checkAuto(List<Result> results, double autoThreshold) {
+    final Map<String, Result> bestEngineByWorkload = new HashMap<String, Result>();
+    for (Result result : results) {
+      if (!AUTO_ENGINE.equals(result.engine())) {
+        final Result previous = bestEngineByWorkload.get(result.workloadKey());
+        if (previous == null || result.throughput > previous.throughput) {
+          bestEngineByWorkload.put(result.workloadKey(), result);
+        }
+      }
+    }
+    final List<String> regressions = new ArrayList<String>();
+    for (Result result : results) {
+      if (AUTO_ENGINE.equals(result.engine())) {
+        regressions.addAll(compare(null, bestEngineByWorkload.get(result.workloadKey()), result, 0, autoThreshold));
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * Selects the best of attempts of the same run. All metrics are of the same attempt, so they stay consistent, e.g.
+   * GC time is of the measured throughput.
+   *
+   * @return The attempt having the higher throughput.
+   */
+  private static Result best(Result left, Result right) {
+    return left.throughput >= right.throughput ? left : right;
+  }
+
+  private static void writeResults(File file, List<Result> results) throws IOException {
+    final File directory = file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Failed to create directory " + directory);
+    }
+    final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    try {
+      writer.println(CSV_HEADER);
+      for (Result result : results) {
+        writer.println(result.toCsv());
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static List<Result> readResults(File file) throws IOException {
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      final List<Result> results = new ArrayList<Result>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty() && !line.equals(CSV_HEADER)) {
+          results.add(Result.parseCsv(line));
+        }
+      }
+      return results;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static Map<String, String> parseParameters(String[] args) {
+    final Map<String, String> parameters = new HashMap<String, String>();
+    for (String arg : args) {
+      final int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Parameter must be name=value: " + arg);
+      }
+      parameters.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+    return parameters;
+  }
+
+  private static String parameter(Map<String, String> parameters, String name, String defaultValue) {
+    final String value = parameters.get(name);
+    return value == null ? defaultValue : value;
+  }
+
+  private static List<String> parseList(Map<String, String> parameters, String name, String defaultValue) {
+    return Arrays.asList(parameter(parameters, name, defaultValue).split(","));
+  }
+
+  private static List<Integer> parseIntList(Map<String, String> parameters, String name, String defaultValue) {
+    final List<Integer> values = new ArrayList<Integer>();
+    for (String value : parseList(parameters, name, defaultValue)) {
+      values.add(Integer.parseInt(value.trim()));
+    }
+    return values;
+  }
+}
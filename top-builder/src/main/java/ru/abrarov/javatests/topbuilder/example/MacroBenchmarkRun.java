@@ -0,0 +1,175 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzers;
+import ru.abrarov.javatests.topbuilder.NaiveFrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.OpenAddressingFrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.io.LineBatchSource;
+import ru.abrarov.javatests.topbuilder.io.LineSources;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single run of {@link MacroBenchmark} executed in a dedicated JVM, so the measured peak memory, GC time and JIT state
+ * belong to the run only. Prints the measured metrics as a line starting with {@link #RESULT_PREFIX}.
+ * <p>
+ * Commandline parameters: &lt;input: generated or path of file&gt; &lt;engine&gt; &lt;value number&gt; &lt;distinct
+ * value number&gt; &lt;top list size&gt; &lt;threads&gt; &lt;rounds&gt; &lt;seed&gt;
+ */
+public class MacroBenchmarkRun {
+
+  static final String RESULT_PREFIX = "RESULT,";
+  static final String GENERATED_INPUT = "generated";
+
+  private static final int MIN_VALUE_LENGTH = 4;
+  private static final int MAX_VALUE_LENGTH = 32;
+
+  /**
+   * Keeps logging of the analyzers quiet, the logger is weakly referenced by LogManager.
+   */
+  private static final Logger ANALYZERS_LOGGER = Logger.getLogger("ru.abrarov.javatests.topbuilder");
+
+  public static void main(String[] args) throws Exception {
+    ANALYZERS_LOGGER.setLevel(Level.WARNING);
+    final String input = args[0];
+    final FrequencyAnalyzer analyzer = createAnalyzer(args[1]);
+    final int valueCount = Integer.parseInt(args[2]);
+    final int distinctCount = Integer.parseInt(args[3]);
+    final int topListSize = Integer.parseInt(args[4]);
+    final int threads = Integer.parseInt(args[5]);
+    final int rounds = Integer.parseInt(args[6]);
+    final long seed = Long.parseLong(args[7]);
+
+    final List<String> values = GENERATED_INPUT.equals(input) ? generateValues(valueCount, distinctCount, seed) : null;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      System.gc();
+      resetPeaks();
+      final long gcTimeBefore = gcTime();
+      long bestDuration = Long.MAX_VALUE;
+      for (int i = 0; i < rounds; ++i) {
+        final long startTime = System.nanoTime();
+        if (values != null) {
+          analyzer.buildTopFrequentList(values.iterator(), topListSize);
+        } else {
+          final LineBatchSource source = LineSources.open(new File(input), executor, threads);
+          try {
+            analyzer.buildTopFrequentList(LineSources.iterator(source), topListSize);
+          } finally {
+            source.close();
+          }
+        }
+        bestDuration = Math.min(bestDuration, System.nanoTime() - startTime);
+      }
+      final long gcTime = gcTime() - gcTimeBefore;
+      System.out.println(String.format("%s%d,%d,%d,%d", RESULT_PREFIX, bestDuration, peakRssInKilobytes(),
+          peakHeapInBytes() / 1024, gcTime));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Generates reproducible list of values with uniform distribution.
+   *
+   * @param valueCount    Number of values to generate.
+   * @param distinctCount Number of distinct values. Must be > 0 if valueCount > 0.
+   * @param seed          Seed of random generator.
+   * @return Generated values.
+   */
+  static List<String> generateValues(int valueCount, int distinctCount, long seed) {
+    final Random random = new Random(seed);
+    final List<String> uniqueValues = new RandomSourceDataProvider(random).buildRandomValues(MIN_VALUE_LENGTH,
+        MAX_VALUE_LENGTH, distinctCount, distinctCount);
+    if (valueCount == distinctCount) {
+      return uniqueValues;
+    }
+    return RandomUtils.randomFilledList(uniqueValues, valueCount, random);
+  }
+
+  static FrequencyAnalyzer createAnalyzer(String engine) {
+    if ("naive".equals(engine)) {
+      return new NaiveFrequencyAnalyzer();
+    }
+    if ("open-addressing".equals(engine)) {
+      return new OpenAddressingFrequencyAnalyzer();
+    }
+    if ("auto".equals(engine)) {
+      return FrequencyAnalyzers.auto();
+    }
+    throw new IllegalArgumentException("Unknown engine: " + engine);
+  }
+
+  /**
+   * Resets peak heap usage and peak resident set size (the last is supported by Linux only).
+   */
+  private static void resetPeaks() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+    try {
+      final Writer writer = new FileWriter("/proc/self/clear_refs");
+      try {
+        writer.write("5");
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      // Peak RSS includes the preparation then
+    }
+  }
+
+  private static long peakHeapInBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(collector.getCollectionTime(), 0);
+    }
+    return time;
+  }
+
+  /**
+   * Reads peak resident set size of the process.
+   *
+   * @return Peak RSS in kilobytes or -1 if it is unknown (not Linux).
+   */
+  private static long peakRssInKilobytes() {
+    try {
+      final BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.startsWith("VmHWM:")) {
+            return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // Unknown
+    }
+    return -1;
+  }
+}
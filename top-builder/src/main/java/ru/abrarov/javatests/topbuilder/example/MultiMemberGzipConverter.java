@@ -0,0 +1,74 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import ru.abrarov.javatests.topbuilder.io.LineSources;
+import ru.abrarov.javatests.topbuilder.io.MultiMemberGzipOutputStream;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tool converting plain text or gzip file (e.g. output of polygon_generator) into multi-member gzip file which can be
+ * inflated in parallel by {@link LineSources}.
+ * <p>
+ * Commandline parameters: &lt;input file or - for stdin&gt; &lt;output file&gt; [&lt;compression level&gt;]
+ *
+ * @see MultiMemberGzipOutputStream
+ */
+public class MultiMemberGzipConverter {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: MultiMemberGzipConverter <input file or - for stdin> <output file> "
+          + "[<compression level>]");
+      System.exit(1);
+    }
+    final int level = args.length > 2 ? Integer.parseInt(args[2]) : Deflater.DEFAULT_COMPRESSION;
+    final long startTime = System.currentTimeMillis();
+    final long size;
+    final InputStream input = openInput(args[0]);
+    try {
+      final OutputStream output = new MultiMemberGzipOutputStream(new FileOutputStream(args[1]),
+          MultiMemberGzipOutputStream.MAX_BLOCK_SIZE, level);
+      try {
+        size = copy(input, output);
+      } finally {
+        output.close();
+      }
+    } finally {
+      input.close();
+    }
+    final long durationInMillis = System.currentTimeMillis() - startTime;
+    System.out.println(String.format("Converted %d bytes in %d.%03d sec", size, durationInMillis / 1000,
+        durationInMillis % 1000));
+  }
+
+  /**
+   * Opens input stream of uncompressed data.
+   *
+   * @param name Name of the input file or "-" for standard input.
+   * @return Input stream of uncompressed data. Gzip input is inflated.
+   * @throws IOException If the input cannot be opened.
+   */
+  private static InputStream openInput(String name) throws IOException {
+    final InputStream raw = new BufferedInputStream("-".equals(name) ? System.in : new FileInputStream(name),
+        BUFFER_SIZE);
+    raw.mark(2);
+    final boolean gzip = raw.read() == 0x1f && raw.read() == 0x8b;
+    raw.reset();
+    return gzip ? new GZIPInputStream(raw, BUFFER_SIZE) : raw;
+  }
+
+  private static long copy(InputStream input, OutputStream output) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    long size = 0;
+    int count;
+    while ((count = input.read(buffer)) >= 0) {
+      output.write(buffer, 0, count);
+      size += count;
+    }
+    return size;
+  }
+}
@@ -14,7 +14,16 @@ public class RandomSourceDataProvider {
   private final Random random;
 
   public RandomSourceDataProvider() {
-    this.random = new Random();
+    this(new Random());
+  }
+
+  /**
+   * Creates provider.
+   *
+   * @param random Random generator to be used, e.g. seeded one to get reproducible values.
+   */
+  public RandomSourceDataProvider(Random random) {
+    this.random = random;
   }
 
   /**
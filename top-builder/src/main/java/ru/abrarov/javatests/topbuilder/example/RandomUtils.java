@@ -1,6 +1,7 @@
 package ru.abrarov.javatests.topbuilder.example;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -73,4 +74,37 @@ public final class RandomUtils {
     return result;
   }
 
+  /**
+   * Generates list containing values from the given collection with Zipf distribution: the value with index i (0-based)
+   * is chosen with probability proportional to 1 / (i + 1)^exponent.
+   *
+   * @param values   Collection of values used to fill generated list. Must be not empty if listSize > 0.
+   * @param listSize Size of the list to be generated. Must be >= 0.
+   * @param exponent Exponent of the distribution. Must be >= 0. 0 means uniform distribution, 1 is classic Zipf.
+   * @param random   Random generator to be used.
+   * @param <T>      Value type.
+   * @return Generated list containing values of the given collection with Zipf distribution.
+   */
+  public static <T> List<T> zipfFilledList(List<T> values, int listSize, double exponent, Random random) {
+    assert listSize >= 0 : "listSize must be >= 0";
+    assert !(values.isEmpty() && listSize > 0) : "listSize > 0 is not permitted for empty values";
+    assert exponent >= 0 : "exponent must be >= 0";
+
+    final int valuesCount = values.size();
+    final double[] cumulativeWeights = new double[valuesCount];
+    double totalWeight = 0;
+    for (int i = 0; i < valuesCount; ++i) {
+      totalWeight += 1 / Math.pow(i + 1, exponent);
+      cumulativeWeights[i] = totalWeight;
+    }
+    final List<T> result = new ArrayList<T>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * totalWeight);
+      if (index < 0) {
+        index = Math.min(-index - 1, valuesCount - 1);
+      }
+      result.add(values.get(index));
+    }
+    return result;
+  }
 }
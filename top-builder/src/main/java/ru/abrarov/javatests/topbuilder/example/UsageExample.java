@@ -1,7 +1,8 @@
 package ru.abrarov.javatests.topbuilder.example;
 
 import ru.abrarov.javatests.topbuilder.FrequencyAnalyzer;
-import ru.abrarov.javatests.topbuilder.NaiveFrequencyAnalyzer;
+import ru.abrarov.javatests.topbuilder.FrequencyAnalyzers;
+import ru.abrarov.javatests.topbuilder.OpenAddressingFrequencyAnalyzer;
 
 import java.util.Collection;
 import java.util.List;
@@ -10,7 +11,7 @@ import java.util.List;
  * Sample app for demonstration of FrequencyAnalyzer usage.
  *
  * @see FrequencyAnalyzer
- * @see NaiveFrequencyAnalyzer
+ * @see FrequencyAnalyzers
  */
 public class UsageExample {
 
@@ -147,8 +148,8 @@ public class UsageExample {
    * @return Built analyzer implementation.
    */
   private static FrequencyAnalyzer buildFrequencyAnalyzer(Parameters parameters) {
-    // todo: select implementation of FrequencyAnalyzer according to
-    // parameters
-    return new NaiveFrequencyAnalyzer();
+    // todo: switch to FrequencyAnalyzers#auto when its selection is within 10% of the best implementation on all
+    // workloads of AnalyzerBenchmark
+    return new OpenAddressingFrequencyAnalyzer();
   }
 }
@@ -0,0 +1,194 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Follower of a growing text file in the line format of polygon_generator (like tail -F). Each {@link #poll()} reads
+ * only the bytes appended since the previous poll: the offset in the file and the trailing line without terminator
+ * are remembered, so the cost of poll is proportional to the new data, not to the size of the file.
+ * <p>
+ * The file is checked by polling of its size and identity:
+ * <ul>
+ * <li>if the file is truncated (its size is less than the offset, e.g. copytruncate rotation) then it's read from the
+ * beginning;</li>
+ * <li>if the path refers to another file (its file key differs, e.g. the file was renamed and created again) then the
+ * rest of the old file is read first, then the new file is read from the beginning. File key isn't supported by some
+ * file systems, only truncation is detected then.</li>
+ * </ul>
+ * The trailing line without terminator is returned as a complete line when the file is truncated or replaced. If the
+ * file doesn't exist then poll returns no lines until it's created. Truncation followed by growth beyond the offset
+ * before the next poll cannot be detected.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class FileTail implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+  /**
+   * Key of missing file, differs from keys of all files.
+   */
+  private static final Object NO_FILE = new Object();
+
+  private final Path path;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private FileChannel channel;
+  private Object fileKey;
+  private byte[] partialLine = new byte[256];
+  private int partialLineLength;
+  private boolean hasPartialLine;
+
+  /**
+   * Creates follower. The file is opened by the first poll.
+   *
+   * @param path Path of the followed file.
+   */
+  public FileTail(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Reads lines appended since the previous poll.
+   *
+   * @return Complete lines (without line terminators) appended since the previous poll, possibly empty.
+   * @throws IOException If reading of the file fails.
+   */
+  public List<String> poll() throws IOException {
+    final List<String> lines = new ArrayList<String>();
+    if (channel == null && !open()) {
+      return lines;
+    }
+    if (channel.size() < channel.position()) {
+      // Truncated in place
+      flushPartialLine(lines);
+      channel.position(0);
+    }
+    readAvailable(lines);
+    final Object currentKey = currentFileKey();
+    if (currentKey != NO_FILE && currentKey != null && !currentKey.equals(fileKey)) {
+      // Replaced: the old file is drained, continue with the new one
+      readAvailable(lines);
+      flushPartialLine(lines);
+      channel.close();
+      channel = null;
+      if (open()) {
+        readAvailable(lines);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Gets offset of the next byte to read in the current file.
+   *
+   * @return Offset in the file or 0 if the file isn't open yet.
+   * @throws IOException If the offset cannot be retrieved.
+   */
+  public long offset() throws IOException {
+    return channel == null ? 0 : channel.position();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private boolean open() throws IOException {
+    final FileChannel opened;
+    try {
+      opened = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+    channel = opened;
+    fileKey = currentFileKey();
+    return true;
+  }
+
+  /**
+   * Gets key of the file which the path refers to now.
+   *
+   * @return File key, null if file keys are not supported or {@link #NO_FILE} if there is no file.
+   * @throws IOException If attributes of the file cannot be read.
+   */
+  private Object currentFileKey() throws IOException {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    } catch (NoSuchFileException e) {
+      return NO_FILE;
+    }
+  }
+
+  private void readAvailable(List<String> lines) throws IOException {
+    while (true) {
+      buffer.clear();
+      final int count = channel.read(buffer);
+      if (count <= 0) {
+        return;
+      }
+      split(buffer.array(), count, lines);
+    }
+  }
+
+  private void split(byte[] data, int length, List<String> lines) {
+    int lineStart = 0;
+    for (int i = 0; i < length; ++i) {
+      if (data[i] != '\n') {
+        continue;
+      }
+      if (hasPartialLine) {
+        appendPartialLine(data, lineStart, i - lineStart);
+        lines.add(decode(partialLine, 0, partialLineLength));
+        partialLineLength = 0;
+        hasPartialLine = false;
+      } else {
+        lines.add(decode(data, lineStart, i - lineStart));
+      }
+      lineStart = i + 1;
+    }
+    appendPartialLine(data, lineStart, length - lineStart);
+  }
+
+  private void flushPartialLine(List<String> lines) {
+    if (!hasPartialLine) {
+      return;
+    }
+    lines.add(decode(partialLine, 0, partialLineLength));
+    partialLineLength = 0;
+    hasPartialLine = false;
+  }
+
+  private void appendPartialLine(byte[] data, int offset, int length) {
+    if (length == 0) {
+      return;
+    }
+    if (partialLineLength + length > partialLine.length) {
+      partialLine = Arrays.copyOf(partialLine, Math.max(partialLineLength + length, partialLine.length * 2));
+    }
+    System.arraycopy(data, offset, partialLine, partialLineLength, length);
+    partialLineLength += length;
+    hasPartialLine = true;
+  }
+
+  private static String decode(byte[] data, int offset, int length) {
+    if (length > 0 && data[offset + length - 1] == '\r') {
+      --length;
+    }
+    return new String(data, offset, length, CHARSET);
+  }
+}
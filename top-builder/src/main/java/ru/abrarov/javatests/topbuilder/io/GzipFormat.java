@@ -0,0 +1,166 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.util.zip.ZipException;
+
+/**
+ * Constants and helpers of gzip (RFC 1952) format including BGZF-style members, i.e. members having "BC" extra
+ * subfield which holds the size of the member so the members can be located without inflating.
+ */
+final class GzipFormat {
+
+  static final int ID1 = 0x1f;
+  static final int ID2 = 0x8b;
+  static final int CM_DEFLATE = 8;
+
+  static final int FTEXT = 1;
+  static final int FHCRC = 2;
+  static final int FEXTRA = 4;
+  static final int FNAME = 8;
+  static final int FCOMMENT = 16;
+
+  /**
+   * Length of the fixed part of the member header.
+   */
+  static final int FIXED_HEADER_LENGTH = 10;
+  /**
+   * Length of the member trailer (CRC32 and ISIZE).
+   */
+  static final int TRAILER_LENGTH = 8;
+
+  static final int BC_SI1 = 'B';
+  static final int BC_SI2 = 'C';
+  static final int BC_SLEN = 2;
+  /**
+   * XLEN of the header written by {@link MultiMemberGzipOutputStream} - the only "BC" subfield.
+   */
+  static final int BC_XLEN = 4 + BC_SLEN;
+  /**
+   * Length of the header written by {@link MultiMemberGzipOutputStream}.
+   */
+  static final int BC_HEADER_LENGTH = FIXED_HEADER_LENGTH + 2 + BC_XLEN;
+  /**
+   * Maximum size of the member (including header and trailer) which can be stored in "BC" subfield.
+   */
+  static final int MAX_MEMBER_SIZE = 0x10000;
+
+  private GzipFormat() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Checks if the given data starts with gzip magic.
+   *
+   * @param data   Data to check.
+   * @param length Length of the data.
+   * @return True if the given data starts with gzip magic.
+   */
+  static boolean isGzip(byte[] data, int length) {
+    return length >= 2 && unsignedByte(data, 0) == ID1 && unsignedByte(data, 1) == ID2;
+  }
+
+  /**
+   * Finds the size of the member stored in "BC" extra subfield of the member header.
+   *
+   * @param data   Data containing member header.
+   * @param offset Offset of the member header.
+   * @param length Number of available bytes starting from offset.
+   * @return Size of the member (including header and trailer), 0 if there is not enough data to read "BC" subfield
+   * or -1 if the member header has no "BC" subfield.
+   * @throws ZipException If the data is not a gzip member header.
+   */
+  static int bcMemberSize(byte[] data, int offset, int length) throws ZipException {
+    if (length < FIXED_HEADER_LENGTH + 2) {
+      return 0;
+    }
+    checkMagic(data, offset);
+    if ((unsignedByte(data, offset + 3) & FEXTRA) == 0) {
+      return -1;
+    }
+    final int extraLength = unsignedShort(data, offset + FIXED_HEADER_LENGTH);
+    if (length < FIXED_HEADER_LENGTH + 2 + extraLength) {
+      return 0;
+    }
+    int subfield = offset + FIXED_HEADER_LENGTH + 2;
+    final int extraEnd = subfield + extraLength;
+    while (subfield + 4 <= extraEnd) {
+      final int subfieldLength = unsignedShort(data, subfield + 2);
+      if (unsignedByte(data, subfield) == BC_SI1 && unsignedByte(data, subfield + 1) == BC_SI2
+          && subfieldLength == BC_SLEN) {
+        return unsignedShort(data, subfield + 4) + 1;
+      }
+      subfield += 4 + subfieldLength;
+    }
+    return -1;
+  }
+
+  /**
+   * Calculates the length of the member header.
+   *
+   * @param data   Data containing the whole member header.
+   * @param offset Offset of the member header.
+   * @param length Number of available bytes starting from offset.
+   * @return Length of the member header.
+   * @throws ZipException If the data is not a valid gzip member header.
+   */
+  static int headerLength(byte[] data, int offset, int length) throws ZipException {
+    checkMagic(data, offset);
+    final int flags = unsignedByte(data, offset + 3);
+    int position = FIXED_HEADER_LENGTH;
+    if ((flags & FEXTRA) != 0) {
+      position += 2 + unsignedShort(data, offset + position);
+    }
+    if ((flags & FNAME) != 0) {
+      position = skipZeroTerminated(data, offset, length, position);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      position = skipZeroTerminated(data, offset, length, position);
+    }
+    if ((flags & FHCRC) != 0) {
+      position += 2;
+    }
+    if (position > length) {
+      throw new ZipException("Truncated gzip member header");
+    }
+    return position;
+  }
+
+  static int unsignedByte(byte[] data, int offset) {
+    return data[offset] & 0xff;
+  }
+
+  static int unsignedShort(byte[] data, int offset) {
+    return unsignedByte(data, offset) | (unsignedByte(data, offset + 1) << 8);
+  }
+
+  static int int32(byte[] data, int offset) {
+    return unsignedShort(data, offset) | (unsignedShort(data, offset + 2) << 16);
+  }
+
+  static void putShort(byte[] data, int offset, int value) {
+    data[offset] = (byte) value;
+    data[offset + 1] = (byte) (value >>> 8);
+  }
+
+  static void putInt(byte[] data, int offset, int value) {
+    putShort(data, offset, value);
+    putShort(data, offset + 2, value >>> 16);
+  }
+
+  private static void checkMagic(byte[] data, int offset) throws ZipException {
+    if (unsignedByte(data, offset) != ID1 || unsignedByte(data, offset + 1) != ID2) {
+      throw new ZipException("Not in gzip format");
+    }
+    if (unsignedByte(data, offset + 2) != CM_DEFLATE) {
+      throw new ZipException("Unsupported gzip compression method");
+    }
+  }
+
+  private static int skipZeroTerminated(byte[] data, int offset, int length, int position) throws ZipException {
+    while (position < length) {
+      if (data[offset + position++] == 0) {
+        return position;
+      }
+    }
+    throw new ZipException("Truncated gzip member header");
+  }
+}
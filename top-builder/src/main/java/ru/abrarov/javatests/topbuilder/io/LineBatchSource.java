@@ -0,0 +1,21 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Source of text lines which are read in batches. Lines are returned in the order they are stored in the source.
+ *
+ * @see LineSources
+ */
+public interface LineBatchSource extends Closeable {
+
+  /**
+   * Reads the next batch of lines.
+   *
+   * @return Next non empty batch of lines (without line terminators) or null if there are no more lines.
+   * @throws IOException If reading of the source fails.
+   */
+  List<String> nextBatch() throws IOException;
+}
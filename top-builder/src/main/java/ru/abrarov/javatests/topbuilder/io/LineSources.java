@@ -0,0 +1,138 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Factory of line sources for the files in the line format of polygon_generator (UTF-8 text, one value per line).
+ */
+public final class LineSources {
+
+  /**
+   * The maximum number of lines in a batch read from a single stream.
+   */
+  private static final int SEQUENTIAL_BATCH_SIZE = 8192;
+  private static final int GZIP_BUFFER_SIZE = 1 << 16;
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  private LineSources() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Opens the file for reading of lines. The format of the file is detected by its content:
+   * <ul>
+   * <li>multi-member gzip having "BC" extra subfield in the first member (BGZF-style, see {@link
+   * MultiMemberGzipOutputStream}) - the members are inflated in parallel using the given executor;</li>
+   * <li>other gzip (including concatenated members without "BC" subfield, which cannot be located without inflating) -
+   * the file is inflated sequentially as a single stream;</li>
+   * <li>otherwise the file is read as plain text.</li>
+   * </ul>
+   *
+   * @param file     File to read.
+   * @param executor Executor for parallel inflating. Isn't shut down when the returned source is closed.
+   * @param threads  Expected number of threads of the executor. Limits the number of chunks of the file being inflated
+   *                 at the same time. Must be > 0.
+   * @return Source of lines of the given file. Must be closed by the caller.
+   * @throws IOException If the file cannot be opened or read.
+   */
+  public static LineBatchSource open(File file, ExecutorService executor, int threads) throws IOException {
+    assert threads > 0 : "threads must be > 0";
+
+    final FileChannel channel = new FileInputStream(file).getChannel();
+    try {
+      final Format format = detectFormat(channel);
+      channel.position(0);
+      switch (format) {
+        case BC_GZIP:
+          return new ParallelGzipLineBatchSource(channel, executor, threads * 2);
+        case GZIP:
+          return new SequentialLineBatchSource(new InputStreamReader(
+              new GZIPInputStream(Channels.newInputStream(channel), GZIP_BUFFER_SIZE), CHARSET),
+              SEQUENTIAL_BATCH_SIZE);
+        default:
+          return new SequentialLineBatchSource(Channels.newReader(channel, CHARSET.newDecoder(), -1),
+              SEQUENTIAL_BATCH_SIZE);
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    } catch (RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Adapts the source of lines to iterator of lines, which can be analyzed with {@link
+   * ru.abrarov.javatests.topbuilder.FrequencyAnalyzer}. Failure of reading of the source is reported with
+   * {@link IllegalStateException} because iterator cannot throw checked exceptions.
+   *
+   * @param source Source of lines. Isn't closed by iterator.
+   * @return Iterator of lines of the given source.
+   */
+  public static Iterator<String> iterator(final LineBatchSource source) {
+    return new Iterator<String>() {
+
+      private Iterator<String> batch = Collections.<String>emptyList().iterator();
+      private boolean endOfSource;
+
+      @Override
+      public boolean hasNext() {
+        while (!batch.hasNext() && !endOfSource) {
+          final List<String> lines;
+          try {
+            lines = source.nextBatch();
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to read lines", e);
+          }
+          if (lines == null) {
+            endOfSource = true;
+          } else {
+            batch = lines.iterator();
+          }
+        }
+        return batch.hasNext();
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return batch.next();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private enum Format {
+    TEXT, GZIP, BC_GZIP
+  }
+
+  private static Format detectFormat(FileChannel channel) throws IOException {
+    final byte[] header = new byte[GzipFormat.MAX_MEMBER_SIZE];
+    final ByteBuffer buffer = ByteBuffer.wrap(header);
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // Read as much as possible
+    }
+    final int length = buffer.position();
+    if (!GzipFormat.isGzip(header, length)) {
+      return Format.TEXT;
+    }
+    return GzipFormat.bcMemberSize(header, 0, length) > 0 ? Format.BC_GZIP : Format.GZIP;
+  }
+}
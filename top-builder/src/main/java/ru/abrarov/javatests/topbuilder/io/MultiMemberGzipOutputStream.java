@@ -0,0 +1,174 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream writing multi-member (BGZF-style) gzip. Data is split into blocks which are compressed into
+ * independent gzip members having "BC" extra subfield with the size of the member, so the members can be located
+ * without inflating and inflated in parallel by {@link LineSources}. Blocks are split at line boundaries (the last
+ * '\n' of the block) when possible, so the most of lines do not span members. The stream is terminated with an empty
+ * member like BGZF does.
+ * <p>
+ * The result is a valid gzip file which can be read by any gzip implementation supporting concatenated members.
+ *
+ * @see LineSources#open
+ */
+public class MultiMemberGzipOutputStream extends FilterOutputStream {
+
+  /**
+   * The maximum size of the block which guarantees that compressed member fits {@link GzipFormat#MAX_MEMBER_SIZE}
+   * even for incompressible data.
+   */
+  public static final int MAX_BLOCK_SIZE = 0xff00;
+
+  private final Deflater deflater;
+  private final CRC32 crc = new CRC32();
+  private final byte[] block;
+  private final byte[] member;
+  private int blockLength;
+  private boolean closed;
+
+  /**
+   * Creates stream with the maximum block size and the default compression level.
+   *
+   * @param out Underlying stream. Is closed when this stream is closed.
+   */
+  public MultiMemberGzipOutputStream(OutputStream out) {
+    this(out, MAX_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Creates stream.
+   *
+   * @param out       Underlying stream. Is closed when this stream is closed.
+   * @param blockSize The maximum size of uncompressed data stored in a single member. Must be > 0 and <= {@link
+   *                  #MAX_BLOCK_SIZE}.
+   * @param level     Compression level. See {@link Deflater#setLevel}.
+   */
+  public MultiMemberGzipOutputStream(OutputStream out, int blockSize, int level) {
+    super(out);
+    assert blockSize > 0 && blockSize <= MAX_BLOCK_SIZE : "blockSize must be > 0 and <= MAX_BLOCK_SIZE";
+
+    this.deflater = new Deflater(level, true);
+    this.block = new byte[blockSize];
+    this.member = new byte[GzipFormat.MAX_MEMBER_SIZE];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (blockLength == block.length) {
+      writeBlock();
+    }
+    block[blockLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] data, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (blockLength == block.length) {
+        writeBlock();
+      }
+      final int chunkLength = Math.min(length, block.length - blockLength);
+      System.arraycopy(data, offset, block, blockLength, chunkLength);
+      blockLength += chunkLength;
+      offset += chunkLength;
+      length -= chunkLength;
+    }
+  }
+
+  /**
+   * Writes all buffered data as a member and flushes underlying stream. Frequent flushing produces small members and
+   * may split lines between members.
+   *
+   * @throws IOException If writing to underlying stream fails.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (blockLength > 0) {
+      writeBlock();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      while (blockLength > 0) {
+        writeBlock();
+      }
+      // Empty member marks the end of data like BGZF does
+      writeMember(0);
+    } finally {
+      deflater.end();
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the buffered block up to the last line terminator (or the whole block if there is no line terminator or
+   * the block isn't full) as a member and keeps the rest of data in the block.
+   *
+   * @throws IOException If writing to underlying stream fails.
+   */
+  private void writeBlock() throws IOException {
+    int memberDataLength = blockLength;
+    if (blockLength == block.length) {
+      for (int i = blockLength - 1; i >= 0; --i) {
+        if (block[i] == '\n') {
+          memberDataLength = i + 1;
+          break;
+        }
+      }
+    }
+    writeMember(memberDataLength);
+    blockLength -= memberDataLength;
+    System.arraycopy(block, memberDataLength, block, 0, blockLength);
+  }
+
+  private void writeMember(int dataLength) throws IOException {
+    deflater.reset();
+    deflater.setInput(block, 0, dataLength);
+    deflater.finish();
+    int compressedLength = GzipFormat.BC_HEADER_LENGTH;
+    final int compressedLimit = member.length - GzipFormat.TRAILER_LENGTH;
+    while (!deflater.finished()) {
+      if (compressedLength == compressedLimit) {
+        throw new IOException("Compressed block exceeds the maximum gzip member size");
+      }
+      compressedLength += deflater.deflate(member, compressedLength, compressedLimit - compressedLength);
+    }
+    crc.reset();
+    crc.update(block, 0, dataLength);
+    final int memberLength = compressedLength + GzipFormat.TRAILER_LENGTH;
+    writeHeader(memberLength);
+    GzipFormat.putInt(member, compressedLength, (int) crc.getValue());
+    GzipFormat.putInt(member, compressedLength + 4, dataLength);
+    out.write(member, 0, memberLength);
+  }
+
+  private void writeHeader(int memberLength) {
+    member[0] = (byte) GzipFormat.ID1;
+    member[1] = (byte) GzipFormat.ID2;
+    member[2] = GzipFormat.CM_DEFLATE;
+    member[3] = GzipFormat.FEXTRA;
+    // MTIME
+    GzipFormat.putInt(member, 4, 0);
+    // XFL
+    member[8] = 0;
+    // OS - unknown
+    member[9] = (byte) 0xff;
+    GzipFormat.putShort(member, 10, GzipFormat.BC_XLEN);
+    member[12] = GzipFormat.BC_SI1;
+    member[13] = GzipFormat.BC_SI2;
+    GzipFormat.putShort(member, 14, GzipFormat.BC_SLEN);
+    GzipFormat.putShort(member, 16, memberLength - 1);
+  }
+}
@@ -0,0 +1,328 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Source of lines read from multi-member (BGZF-style) gzip file. The file is read sequentially in chunks of whole
+ * members which are inflated and split into lines by the tasks running on the given executor. Results of the tasks are
+ * consumed in order of chunks, so the lines are returned in the order they are stored in the file. The number of
+ * chunks being processed at the same time is limited to bound memory consumption.
+ *
+ * @see MultiMemberGzipOutputStream
+ */
+final class ParallelGzipLineBatchSource implements LineBatchSource {
+
+  /**
+   * Target size of compressed data processed by a single task.
+   */
+  static final int CHUNK_SIZE = 1 << 20;
+
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+  private static final byte[] NO_BYTES = new byte[0];
+
+  private final FileChannel channel;
+  private final ExecutorService executor;
+  private final int maxPendingChunks;
+  private final Deque<Future<Chunk>> pendingChunks = new ArrayDeque<Future<Chunk>>();
+  /**
+   * Compressed data read from the file but not submitted yet (the beginning of incomplete member).
+   */
+  private byte[] leftover = NO_BYTES;
+  private boolean endOfFile;
+  /**
+   * Beginning of the line which started in the previous chunks and not terminated yet.
+   */
+  private byte[] partialLine = NO_BYTES;
+  private int partialLineLength;
+  private boolean hasPartialLine;
+
+  /**
+   * Creates source.
+   *
+   * @param channel          Channel of multi-member gzip file positioned at the beginning of a member. Is closed when
+   *                         the source is closed.
+   * @param executor         Executor of inflating tasks. Isn't shut down when the source is closed.
+   * @param maxPendingChunks The maximum number of chunks being processed at the same time. Must be > 0.
+   */
+  ParallelGzipLineBatchSource(FileChannel channel, ExecutorService executor, int maxPendingChunks) {
+    assert maxPendingChunks > 0 : "maxPendingChunks must be > 0";
+
+    this.channel = channel;
+    this.executor = executor;
+    this.maxPendingChunks = maxPendingChunks;
+  }
+
+  @Override
+  public List<String> nextBatch() throws IOException {
+    while (true) {
+      submitChunks();
+      final Future<Chunk> future = pendingChunks.poll();
+      if (future == null) {
+        return lastLine();
+      }
+      final List<String> lines = join(getChunk(future));
+      if (!lines.isEmpty()) {
+        return lines;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Future<Chunk> future : pendingChunks) {
+      future.cancel(true);
+    }
+    pendingChunks.clear();
+    channel.close();
+  }
+
+  private void submitChunks() throws IOException {
+    while (pendingChunks.size() < maxPendingChunks) {
+      final Chunk chunk = readChunk();
+      if (chunk == null) {
+        return;
+      }
+      pendingChunks.add(executor.submit(chunk));
+    }
+  }
+
+  /**
+   * Reads whole members of approximately {@link #CHUNK_SIZE} total size.
+   *
+   * @return Chunk of members or null if there are no more members.
+   * @throws IOException If reading of the file fails or the file has invalid format.
+   */
+  private Chunk readChunk() throws IOException {
+    if (endOfFile && leftover.length == 0) {
+      return null;
+    }
+    final byte[] data = new byte[CHUNK_SIZE + GzipFormat.MAX_MEMBER_SIZE];
+    System.arraycopy(leftover, 0, data, 0, leftover.length);
+    int length = leftover.length;
+    final List<Integer> memberOffsets = new ArrayList<Integer>();
+    int offset = 0;
+    while (true) {
+      // Locate complete members in the read data
+      while (offset < CHUNK_SIZE) {
+        final int memberSize = GzipFormat.bcMemberSize(data, offset, length - offset);
+        if (memberSize < 0) {
+          throw new ZipException("Gzip member has no BC extra subfield");
+        }
+        if (memberSize == 0 || memberSize > length - offset) {
+          break;
+        }
+        memberOffsets.add(offset);
+        offset += memberSize;
+      }
+      if (offset >= CHUNK_SIZE || endOfFile) {
+        break;
+      }
+      length += read(data, length, data.length - length);
+    }
+    if (endOfFile && offset < length && memberOffsets.isEmpty()) {
+      throw new EOFException("Unexpected end of gzip file");
+    }
+    leftover = Arrays.copyOfRange(data, offset, length);
+    if (memberOffsets.isEmpty()) {
+      return null;
+    }
+    memberOffsets.add(offset);
+    return new Chunk(data, memberOffsets);
+  }
+
+  private int read(byte[] data, int offset, int length) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        endOfFile = true;
+        break;
+      }
+    }
+    return buffer.position() - offset;
+  }
+
+  private static Chunk getChunk(Future<Chunk> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for inflated data");
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to inflate gzip member", cause);
+    }
+  }
+
+  /**
+   * Joins the lines of the chunk with the line started in the previous chunks.
+   *
+   * @param chunk Processed chunk.
+   * @return Lines terminated in the given chunk.
+   */
+  private List<String> join(Chunk chunk) {
+    if (!chunk.hasLineTerminator) {
+      appendPartialLine(chunk.data, 0, chunk.dataLength);
+      return Collections.emptyList();
+    }
+    final List<String> lines = new ArrayList<String>(chunk.lines.size() + 2);
+    appendPartialLine(chunk.data, 0, chunk.firstLineEnd);
+    lines.add(decode(partialLine, 0, partialLineLength));
+    partialLineLength = 0;
+    hasPartialLine = false;
+    lines.addAll(chunk.lines);
+    appendPartialLine(chunk.data, chunk.lastLineStart, chunk.dataLength - chunk.lastLineStart);
+    return lines;
+  }
+
+  private List<String> lastLine() {
+    if (!hasPartialLine) {
+      return null;
+    }
+    hasPartialLine = false;
+    final String line = decode(partialLine, 0, partialLineLength);
+    partialLineLength = 0;
+    return Collections.singletonList(line);
+  }
+
+  private void appendPartialLine(byte[] data, int offset, int length) {
+    if (length == 0) {
+      return;
+    }
+    if (partialLineLength + length > partialLine.length) {
+      partialLine = Arrays.copyOf(partialLine, Math.max(partialLineLength + length, partialLine.length * 2));
+    }
+    System.arraycopy(data, offset, partialLine, partialLineLength, length);
+    partialLineLength += length;
+    hasPartialLine = true;
+  }
+
+  private static String decode(byte[] data, int offset, int length) {
+    if (length > 0 && data[offset + length - 1] == '\r') {
+      --length;
+    }
+    return new String(data, offset, length, CHARSET);
+  }
+
+  /**
+   * Task inflating the chunk of members and splitting the inflated data into lines. The first (possibly continuing the
+   * line of the previous chunk) and the last (possibly continued in the next chunk) lines are kept as bytes because
+   * they may be incomplete and even may contain incomplete characters.
+   */
+  private static final class Chunk implements Callable<Chunk> {
+
+    private final List<Integer> memberOffsets;
+    private byte[] data;
+    private int dataLength;
+    private boolean hasLineTerminator;
+    private int firstLineEnd;
+    private int lastLineStart;
+    private List<String> lines = Collections.emptyList();
+
+    /**
+     * Creates task.
+     *
+     * @param data          Compressed members.
+     * @param memberOffsets Offsets of members in data followed by the end offset of the last member.
+     */
+    Chunk(byte[] data, List<Integer> memberOffsets) {
+      this.data = data;
+      this.memberOffsets = memberOffsets;
+    }
+
+    @Override
+    public Chunk call() throws IOException {
+      data = inflate(data, memberOffsets);
+      split();
+      return this;
+    }
+
+    private byte[] inflate(byte[] compressed, List<Integer> offsets) throws IOException {
+      long totalLength = 0;
+      for (int i = 1; i < offsets.size(); ++i) {
+        totalLength += GzipFormat.int32(compressed, offsets.get(i) - 4) & 0xffffffffL;
+      }
+      if (totalLength > Integer.MAX_VALUE) {
+        throw new ZipException("Gzip members are too large");
+      }
+      final byte[] inflated = new byte[(int) totalLength];
+      final Inflater inflater = new Inflater(true);
+      final CRC32 crc = new CRC32();
+      final byte[] scratch = new byte[1];
+      try {
+        for (int i = 1; i < offsets.size(); ++i) {
+          final int memberStart = offsets.get(i - 1);
+          final int memberEnd = offsets.get(i);
+          final int trailer = memberEnd - GzipFormat.TRAILER_LENGTH;
+          final int dataStart = memberStart + GzipFormat.headerLength(compressed, memberStart, trailer - memberStart);
+          final int expectedLength = GzipFormat.int32(compressed, trailer + 4);
+          inflater.reset();
+          // Trailer is given as input too because raw inflater may need an extra byte after the compressed data
+          inflater.setInput(compressed, dataStart, memberEnd - dataStart);
+          int inflatedLength = 0;
+          while (!inflater.finished()) {
+            final int remaining = expectedLength - inflatedLength;
+            // Inflater is given some space even if all the expected data is inflated to reach the end of stream
+            final int count = remaining > 0 ? inflater.inflate(inflated, dataLength + inflatedLength, remaining)
+                : inflater.inflate(scratch);
+            if (remaining == 0 && count > 0) {
+              throw new ZipException("Corrupted gzip member (wrong size)");
+            }
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+              throw new ZipException("Corrupted gzip member");
+            }
+            inflatedLength += count;
+          }
+          if (inflatedLength != expectedLength) {
+            throw new ZipException("Corrupted gzip member (wrong size)");
+          }
+          crc.reset();
+          crc.update(inflated, dataLength, inflatedLength);
+          if ((int) crc.getValue() != GzipFormat.int32(compressed, trailer)) {
+            throw new ZipException("Corrupted gzip member (wrong CRC)");
+          }
+          dataLength += inflatedLength;
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      } finally {
+        inflater.end();
+      }
+      return inflated;
+    }
+
+    private void split() {
+      int lineStart = 0;
+      for (int i = 0; i < dataLength; ++i) {
+        if (data[i] != '\n') {
+          continue;
+        }
+        if (!hasLineTerminator) {
+          hasLineTerminator = true;
+          firstLineEnd = i;
+          lines = new ArrayList<String>();
+        } else {
+          lines.add(decode(data, lineStart, i - lineStart));
+        }
+        lineStart = i + 1;
+      }
+      lastLineStart = hasLineTerminator ? lineStart : dataLength;
+    }
+  }
+}
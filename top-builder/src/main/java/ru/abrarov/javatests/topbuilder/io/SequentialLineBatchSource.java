@@ -0,0 +1,46 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source of lines read sequentially from a single stream.
+ */
+final class SequentialLineBatchSource implements LineBatchSource {
+
+  private static final int READER_BUFFER_SIZE = 1 << 16;
+
+  private final BufferedReader reader;
+  private final int batchSize;
+
+  /**
+   * Creates source.
+   *
+   * @param reader    Reader of lines. Is closed when the source is closed.
+   * @param batchSize The maximum number of lines in a batch. Must be > 0.
+   */
+  SequentialLineBatchSource(Reader reader, int batchSize) {
+    assert batchSize > 0 : "batchSize must be > 0";
+
+    this.reader = new BufferedReader(reader, READER_BUFFER_SIZE);
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public List<String> nextBatch() throws IOException {
+    final List<String> batch = new ArrayList<String>(batchSize);
+    String line;
+    while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+      batch.add(line);
+    }
+    return batch.isEmpty() ? null : batch;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
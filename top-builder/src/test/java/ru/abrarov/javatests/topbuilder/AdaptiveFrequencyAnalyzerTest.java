@@ -0,0 +1,103 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * AdaptiveFrequencyAnalyzer test. The sample is smaller than most of the common test sets, so analysis of the sample
+ * followed by the rest of values is tested.
+ *
+ * @see AdaptiveFrequencyAnalyzer
+ * @see DefaultSelectionPolicy
+ */
+public class AdaptiveFrequencyAnalyzerTest extends AbstractFrequencyAnalyzerTest {
+
+  private static final int SAMPLE_SIZE = 8;
+
+  @Override
+  protected FrequencyAnalyzer createFrequencyAnalyzer() {
+    return FrequencyAnalyzers.auto(new DefaultSelectionPolicy(), SAMPLE_SIZE);
+  }
+
+  /**
+   * Few distinct values repeated many times are analyzed with hash map.
+   */
+  @Test
+  public void testSaturatedSampleSelectsHashMap() {
+    final AdaptiveFrequencyAnalyzer analyzer = FrequencyAnalyzers.auto(new DefaultSelectionPolicy(), 1000);
+    analyzer.buildTopFrequentList(buildValues(100000, 10).iterator(), 3);
+    assertEquals(NaiveFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+  }
+
+  /**
+   * Nearly unique values are analyzed with primitive table.
+   */
+  @Test
+  public void testUniqueValuesSelectPrimitiveTable() {
+    final AdaptiveFrequencyAnalyzer analyzer = FrequencyAnalyzers.auto(new DefaultSelectionPolicy(), 1000);
+    analyzer.buildTopFrequentList(buildValues(100000, 100000).iterator(), 3);
+    assertEquals(OpenAddressingFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+  }
+
+  /**
+   * Many distinct values are analyzed with primitive table even if the sample is saturated.
+   */
+  @Test
+  public void testLargeCardinalitySelectsPrimitiveTable() {
+    final AdaptiveFrequencyAnalyzer analyzer = FrequencyAnalyzers.auto(new DefaultSelectionPolicy(10, 10), 1000);
+    analyzer.buildTopFrequentList(buildValues(100000, 20).iterator(), 3);
+    assertEquals(OpenAddressingFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+  }
+
+  /**
+   * Few distinct values having the same hash code are analyzed with primitive table which rehashes them by keyed hash.
+   */
+  @Test
+  public void testCollidingValuesSelectPrimitiveTable() {
+    final AdaptiveFrequencyAnalyzer analyzer = FrequencyAnalyzers.auto(new DefaultSelectionPolicy(), 1000);
+    final List<String> keys = StringCountTableTest.collidingKeys(6);
+    final List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 100000; ++i) {
+      values.add(keys.get(i % keys.size()));
+    }
+    final List<FrequencyAnalyzer.Item> top = analyzer.buildTopFrequentList(values.iterator(), 1);
+    assertEquals(OpenAddressingFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+    assertEquals(keys.get(0), top.get(0).value());
+    assertEquals(1563, top.get(0).frequency());
+  }
+
+  /**
+   * Moderate number of distinct values is analyzed with primitive table if repeated values share String instances and
+   * with hash map if they are distinct instances.
+   */
+  @Test
+  public void testFreshInstancesSelectHashMap() {
+    final List<String> distinctValues = buildValues(20000, 20000);
+    final Random random = new Random(1);
+    final List<String> shared = new ArrayList<String>();
+    final List<String> fresh = new ArrayList<String>();
+    for (int i = 0; i < 100000; ++i) {
+      final String value = distinctValues.get(random.nextInt(distinctValues.size()));
+      shared.add(value);
+      fresh.add(new String(value));
+    }
+    final AdaptiveFrequencyAnalyzer analyzer = FrequencyAnalyzers.auto();
+    analyzer.buildTopFrequentList(shared.iterator(), 3);
+    assertEquals(OpenAddressingFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+    analyzer.buildTopFrequentList(fresh.iterator(), 3);
+    assertEquals(NaiveFrequencyAnalyzer.class, analyzer.lastSelection().analyzer().getClass());
+  }
+
+  private static List<String> buildValues(int count, int distinctCount) {
+    final List<String> values = new ArrayList<String>(count);
+    for (int i = 0; i < count; ++i) {
+      values.add("Value" + (i % distinctCount));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,35 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BlockedBloomFilter test.
+ *
+ * @see BlockedBloomFilter
+ */
+public class BlockedBloomFilterTest {
+
+  /**
+   * Strings with equal hash codes are distinguished, so only about the expected 1% of them are false positives, and
+   * added strings are reported as present.
+   */
+  @Test
+  public void testCollidingValues() {
+    final List<String> values = StringCountTableTest.collidingKeys(12);
+    final BlockedBloomFilter filter = new BlockedBloomFilter(values.size(), BlockedBloomFilter.DEFAULT_BITS_PER_VALUE);
+    int falsePositives = 0;
+    for (String value : values) {
+      if (filter.add(value)) {
+        ++falsePositives;
+      }
+    }
+    assertTrue("false positives " + falsePositives, falsePositives < values.size() / 20);
+    for (String value : values) {
+      assertTrue(value, filter.add(value));
+    }
+  }
+}
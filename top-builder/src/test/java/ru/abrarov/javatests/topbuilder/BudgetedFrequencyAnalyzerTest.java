@@ -0,0 +1,83 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BudgetedFrequencyAnalyzer test. The common tests fit the budget, so they are counted exactly.
+ *
+ * @see BudgetedFrequencyAnalyzer
+ */
+public class BudgetedFrequencyAnalyzerTest extends AbstractFrequencyAnalyzerTest {
+
+  private static final long LARGE_BUDGET = 64L << 20;
+
+  @Override
+  protected FrequencyAnalyzer createFrequencyAnalyzer() {
+    return new BudgetedFrequencyAnalyzer(LARGE_BUDGET);
+  }
+
+  /**
+   * Values fitting the budget are counted exactly.
+   */
+  @Test
+  public void testExactWithinBudget() {
+    final List<String> values = TestValues.buildSkewedValues(100000, 20000);
+    final BoundedTopList top = new BudgetedFrequencyAnalyzer(LARGE_BUDGET).analyze(values.iterator(), 10);
+    assertTrue(top.isExact());
+    assertEquals(0, top.maxError());
+    for (ApproximateItem item : top.items()) {
+      assertEquals(item.lowerBound(), item.upperBound());
+    }
+  }
+
+  /**
+   * Values exceeding the budget are counted approximately: true frequency of each item is within its bounds and each
+   * value missing in the top list is not more frequent than the upper bound of the last item.
+   */
+  @Test
+  public void testApproximateBeyondBudget() {
+    final List<String> values = TestValues.buildSkewedValues(100000, 20000);
+    final int listSize = 10;
+    final BoundedTopList top = new BudgetedFrequencyAnalyzer(16 * 1024).analyze(values.iterator(), listSize);
+    assertTrue(!top.isExact());
+    assertEquals(listSize, top.items().size());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    final List<String> topValues = new ArrayList<String>();
+    for (ApproximateItem item : top.items()) {
+      final int frequency = distribution.frequencyOf(item.value());
+      assertTrue(item + " vs " + frequency, item.lowerBound() <= frequency && frequency <= item.upperBound());
+      assertEquals(item.lowerBound() + top.maxError(), item.upperBound());
+      topValues.add(item.value());
+    }
+    final int lastUpperBound = top.items().get(listSize - 1).upperBound();
+    for (FrequencyAnalyzer.Item item : distribution.valuesWithFrequencyAtLeast(lastUpperBound + 1)) {
+      assertTrue(item.value() + " is missing", topValues.contains(item.value()));
+    }
+  }
+
+  /**
+   * Values having the same hash code are rehashed by keyed hash in the table which doesn't grow anymore, and they are
+   * still counted within the bounds.
+   */
+  @Test
+  public void testCollidingValuesBeyondBudget() {
+    final List<String> keys = StringCountTableTest.collidingKeys(12);
+    final List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 100000; ++i) {
+      values.add(i % 2 == 0 ? keys.get(i % 16) : keys.get(i % keys.size()));
+    }
+    final BoundedTopList top = new BudgetedFrequencyAnalyzer(64 * 1024).analyze(values.iterator(), 16);
+    assertTrue(!top.isExact());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    for (ApproximateItem item : top.items()) {
+      final int frequency = distribution.frequencyOf(item.value());
+      assertTrue(item + " vs " + frequency, item.lowerBound() <= frequency && frequency <= item.upperBound());
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * CheckpointedFrequencyCounter test. Crash of JVM is simulated by opening the snapshot file by a new counter without
+ * closing the previous one.
+ *
+ * @see CheckpointedFrequencyCounter
+ */
+public class CheckpointedFrequencyCounterTest {
+
+  private static final long NO_BUDGET = 1;
+  private static final long UNLIMITED_BUDGET = Long.MAX_VALUE;
+  /**
+   * Segment size which is small enough to have many segments and records padded to segment boundaries.
+   */
+  private static final int SEGMENT_SIZE = 4096;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * State is restored after close.
+   */
+  @Test
+  public void testRestoreAfterClose() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "snapshot");
+    final List<String> values = buildValues(10000, 3000, 1);
+    final CheckpointedFrequencyCounter counter = new CheckpointedFrequencyCounter(file, 1000, UNLIMITED_BUDGET);
+    counter.addAll(values.iterator());
+    final List<FrequencyAnalyzer.Item> expected = counter.distribution().top(Integer.MAX_VALUE);
+    counter.close();
+
+    final CheckpointedFrequencyCounter restored = new CheckpointedFrequencyCounter(file, 1000, UNLIMITED_BUDGET);
+    try {
+      assertItemsEqual(expected, restored.distribution().top(Integer.MAX_VALUE));
+    } finally {
+      restored.close();
+    }
+  }
+
+  /**
+   * Changes made after the last checkpoint are lost after crash.
+   */
+  @Test
+  public void testRestoreAfterCrash() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "snapshot");
+    final CheckpointedFrequencyCounter counter =
+        new CheckpointedFrequencyCounter(file, Integer.MAX_VALUE, UNLIMITED_BUDGET);
+    counter.addAll(buildValues(1000, 300, 1).iterator());
+    counter.checkpoint();
+    final List<FrequencyAnalyzer.Item> expected = counter.distribution().top(Integer.MAX_VALUE);
+    counter.addAll(buildValues(1000, 300, 2).iterator());
+
+    final CheckpointedFrequencyCounter restored =
+        new CheckpointedFrequencyCounter(file, Integer.MAX_VALUE, UNLIMITED_BUDGET);
+    try {
+      assertEquals(1, restored.checkpointGeneration());
+      assertItemsEqual(expected, restored.distribution().top(Integer.MAX_VALUE));
+    } finally {
+      restored.close();
+    }
+  }
+
+  /**
+   * Crash during incomplete checkpoint doesn't break the previous checkpoint, and the restored state is checkpointed
+   * correctly later.
+   */
+  @Test
+  public void testRestoreAfterCrashDuringCheckpoint() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "snapshot");
+    final int checkpointInterval = 1000;
+    final CheckpointedFrequencyCounter counter =
+        new CheckpointedFrequencyCounter(file, checkpointInterval, NO_BUDGET, SEGMENT_SIZE);
+    counter.addAll(buildValues(500, 200, 1).iterator());
+    counter.checkpoint();
+    final List<FrequencyAnalyzer.Item> expected = counter.distribution().top(Integer.MAX_VALUE);
+    counter.addAll(buildValues(checkpointInterval, checkpointInterval, 2).iterator());
+    assertTrue(counter.isCheckpointInProgress());
+
+    final CheckpointedFrequencyCounter restored = new CheckpointedFrequencyCounter(file, checkpointInterval,
+        NO_BUDGET, SEGMENT_SIZE);
+    assertItemsEqual(expected, restored.distribution().top(Integer.MAX_VALUE));
+    final List<String> values = buildValues(5000, 700, 3);
+    restored.addAll(values.iterator());
+    final List<FrequencyAnalyzer.Item> expectedAfterRestore = restored.distribution().top(Integer.MAX_VALUE);
+    restored.close();
+
+    final CheckpointedFrequencyCounter reopened = new CheckpointedFrequencyCounter(file, checkpointInterval,
+        NO_BUDGET, SEGMENT_SIZE);
+    try {
+      assertItemsEqual(expectedAfterRestore, reopened.distribution().top(Integer.MAX_VALUE));
+    } finally {
+      reopened.close();
+    }
+  }
+
+  /**
+   * Checkpoints are performed in many small steps interleaved with counting.
+   */
+  @Test
+  public void testIncrementalCheckpoints() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "snapshot");
+    final CheckpointedFrequencyCounter counter = new CheckpointedFrequencyCounter(file, 100, NO_BUDGET, SEGMENT_SIZE);
+    final List<String> values = buildValues(20000, 2000, 4);
+    values.add(null);
+    values.add("");
+    counter.addAll(values.iterator());
+    assertTrue(counter.checkpointGeneration() > 1);
+    final List<FrequencyAnalyzer.Item> expected =
+        new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(), Integer.MAX_VALUE);
+    assertItemsEqual(expected, counter.distribution().top(Integer.MAX_VALUE));
+    counter.close();
+
+    final CheckpointedFrequencyCounter restored = new CheckpointedFrequencyCounter(file, 100, NO_BUDGET, SEGMENT_SIZE);
+    try {
+      assertItemsEqual(expected, restored.distribution().top(Integer.MAX_VALUE));
+    } finally {
+      restored.close();
+    }
+  }
+
+  private static void assertItemsEqual(List<FrequencyAnalyzer.Item> expected, List<FrequencyAnalyzer.Item> actual) {
+    assertEquals(toStrings(expected), toStrings(actual));
+  }
+
+  private static List<String> buildValues(int totalCount, int uniqueCount, long seed) {
+    final Random random = new Random(seed);
+    final List<String> values = new ArrayList<String>(totalCount + 2);
+    for (int i = 0; i < totalCount; ++i) {
+      values.add(seed + "-" + random.nextInt(uniqueCount) + "-value");
+    }
+    return values;
+  }
+}
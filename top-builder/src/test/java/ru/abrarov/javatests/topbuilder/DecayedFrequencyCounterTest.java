@@ -0,0 +1,135 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DecayedFrequencyCounter test.
+ *
+ * @see DecayedFrequencyCounter
+ */
+public class DecayedFrequencyCounterTest {
+
+  private static final double RELATIVE_TOLERANCE = 1e-9;
+
+  /**
+   * Scores of the top list are the sums of decayed weights of occurrences, including the periods when the landmark is
+   * moved many times.
+   */
+  @Test
+  public void testScoresMatchExactDecay() {
+    final int listSize = 10;
+    final long halfLife = 100;
+    final Random random = new Random(1);
+    final DecayedFrequencyCounter counter = new DecayedFrequencyCounter(listSize, halfLife);
+    final List<String> values = new ArrayList<String>();
+    final List<Long> times = new ArrayList<Long>();
+    long time = 0;
+    for (int i = 1; i <= 20000; ++i) {
+      // The landmark is moved about 5 times
+      time += random.nextInt(20);
+      final int index = random.nextInt(1 + random.nextInt(200));
+      final String value = index == 0 ? null : "Value" + index;
+      counter.add(value, time);
+      values.add(value);
+      times.add(time);
+      if (i % 1000 == 0) {
+        assertTopList(exactScores(values, times, halfLife, time), listSize, counter.topTrendingList(time));
+      }
+    }
+    assertEquals(values.size(), counter.valueCount());
+    assertEquals(0, counter.maxError(time), 0);
+  }
+
+  /**
+   * Recent values go before the values which were frequent long ago.
+   */
+  @Test
+  public void testRecentValuesGoFirst() {
+    final DecayedFrequencyCounter counter = new DecayedFrequencyCounter(2, 100);
+    for (int i = 0; i < 100; ++i) {
+      counter.add("Old", i);
+    }
+    for (int i = 0; i < 10; ++i) {
+      counter.add("New", 1000 + i);
+    }
+    final List<ScoredItem> top = counter.topTrendingList(1010);
+    assertEquals(2, top.size());
+    assertEquals("New", top.get(0).value());
+    assertEquals("Old", top.get(1).value());
+    assertTrue(top.get(1).score() < 1);
+    assertEquals(counter.score("Old", 1010), top.get(1).score(), 0);
+  }
+
+  /**
+   * The bounded counter keeps the frequent values and underestimates scores by at most the maximum error.
+   */
+  @Test
+  public void testBoundedCounterUndercountsByMaxError() {
+    final int listSize = 5;
+    final long halfLife = 10000;
+    final Random random = new Random(1);
+    final DecayedFrequencyCounter counter = new DecayedFrequencyCounter(listSize, halfLife, 100);
+    final List<String> values = new ArrayList<String>();
+    final List<Long> times = new ArrayList<Long>();
+    long time = 0;
+    for (int i = 0; i < 50000; ++i) {
+      time += random.nextInt(3);
+      final String value = random.nextInt(4) == 0 ? "Hot" + random.nextInt(listSize) : "Unique" + i;
+      counter.add(value, time);
+      values.add(value);
+      times.add(time);
+    }
+    final Map<String, Double> exact = exactScores(values, times, halfLife, time);
+    final double maxError = counter.maxError(time);
+    assertTrue(maxError > 0);
+    final Set<String> topValues = new HashSet<String>();
+    for (ScoredItem item : counter.topTrendingList(time)) {
+      final double exactScore = exact.get(item.value());
+      assertTrue(item.value(), item.score() <= exactScore * (1 + RELATIVE_TOLERANCE));
+      assertTrue(item.value(), item.score() >= exactScore - maxError - exactScore * RELATIVE_TOLERANCE);
+      topValues.add(item.value());
+    }
+    final Set<String> expected = new HashSet<String>();
+    for (int i = 0; i < listSize; ++i) {
+      expected.add("Hot" + i);
+    }
+    assertEquals(expected, topValues);
+  }
+
+  private static Map<String, Double> exactScores(List<String> values, List<Long> times, long halfLife, long time) {
+    final Map<String, Double> scores = new HashMap<String, Double>();
+    for (int i = 0; i < values.size(); ++i) {
+      final double weight = Math.pow(2, -(double) (time - times.get(i)) / halfLife);
+      final Double score = scores.get(values.get(i));
+      scores.put(values.get(i), score == null ? weight : score + weight);
+    }
+    return scores;
+  }
+
+  /**
+   * Checks that the items have exact scores and that their scores are the greatest ones.
+   */
+  private static void assertTopList(Map<String, Double> exact, int listSize, List<ScoredItem> top) {
+    final List<Double> expectedScores = new ArrayList<Double>(exact.values());
+    Collections.sort(expectedScores, Collections.reverseOrder());
+    assertEquals(Math.min(expectedScores.size(), listSize), top.size());
+    for (int i = 0; i < top.size(); ++i) {
+      final ScoredItem item = top.get(i);
+      final double exactScore = exact.get(item.value());
+      assertEquals(item.value(), exactScore, item.score(), exactScore * RELATIVE_TOLERANCE);
+      assertEquals(expectedScores.get(i), item.score(), expectedScores.get(i) * RELATIVE_TOLERANCE);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * FrequencyDistribution test.
+ *
+ * @see FrequencyDistribution
+ * @see NaiveFrequencyAnalyzer#buildDistribution
+ */
+public class FrequencyDistributionTest {
+
+  /**
+   * Instance of {@link FrequencyDistribution} to be tested, built for {@link #buildSourceData}.
+   */
+  private FrequencyDistribution distribution;
+
+  @Before
+  public void init() {
+    distribution = new NaiveFrequencyAnalyzer().buildDistribution(buildSourceData().iterator());
+  }
+
+  /**
+   * Top lists of different sizes are built from the same distribution.
+   */
+  @Test
+  public void testTopListsOfDifferentSizes() {
+    assertEquals(Arrays.asList("Apple", "Eve", null, "Adam", "Bob"), values(distribution.top(10)));
+    assertEquals(Arrays.asList("Apple", "Eve"), values(distribution.top(2)));
+    assertEquals(Collections.<String>emptyList(), values(distribution.top(0)));
+  }
+
+  /**
+   * Top list is the same as the one built by {@link NaiveFrequencyAnalyzer#buildTopFrequentList}.
+   */
+  @Test
+  public void testTopListIsTheSameAsAnalyzerOne() {
+    final List<FrequencyAnalyzer.Item> expected =
+        new NaiveFrequencyAnalyzer().buildTopFrequentList(buildSourceData().iterator(), 3);
+    final List<FrequencyAnalyzer.Item> actual = distribution.top(3);
+    assertEquals(values(expected), values(actual));
+    assertEquals(frequencies(expected), frequencies(actual));
+  }
+
+  /**
+   * Frequencies of the met and not met values.
+   */
+  @Test
+  public void testFrequencyOf() {
+    assertEquals(3, distribution.frequencyOf("Apple"));
+    assertEquals(2, distribution.frequencyOf("Eve"));
+    assertEquals(1, distribution.frequencyOf(null));
+    assertEquals(0, distribution.frequencyOf("Snake"));
+  }
+
+  /**
+   * Ranks of the met and not met values. Values with equal frequencies are ranked according to the order of values.
+   */
+  @Test
+  public void testRankOf() {
+    assertEquals(1, distribution.rankOf("Apple"));
+    assertEquals(2, distribution.rankOf("Eve"));
+    assertEquals(3, distribution.rankOf(null));
+    assertEquals(4, distribution.rankOf("Adam"));
+    assertEquals(5, distribution.rankOf("Bob"));
+    assertEquals(-1, distribution.rankOf("Snake"));
+  }
+
+  /**
+   * Threshold queries.
+   */
+  @Test
+  public void testValuesWithFrequencyAtLeast() {
+    assertEquals(Arrays.asList("Apple", "Eve"), values(distribution.valuesWithFrequencyAtLeast(2)));
+    assertEquals(Arrays.asList("Apple"), values(distribution.valuesWithFrequencyAtLeast(3)));
+    assertEquals(Collections.<String>emptyList(), values(distribution.valuesWithFrequencyAtLeast(4)));
+    assertEquals(5, distribution.countOfValuesWithFrequencyAtLeast(1));
+  }
+
+  /**
+   * Histogram and totals.
+   */
+  @Test
+  public void testHistogram() {
+    final SortedMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+    expected.put(1, 3);
+    expected.put(2, 1);
+    expected.put(3, 1);
+    assertEquals(expected, distribution.histogram());
+    assertEquals(5, distribution.distinctCount());
+    assertEquals(8, distribution.totalCount());
+  }
+
+  /**
+   * Distribution of no values.
+   */
+  @Test
+  public void testNoValues() {
+    final FrequencyDistribution empty =
+        new NaiveFrequencyAnalyzer().buildDistribution(Collections.<String>emptyList().iterator());
+    assertEquals(0, empty.top(3).size());
+    assertEquals(0, empty.histogram().size());
+    assertEquals(-1, empty.rankOf("Apple"));
+    assertEquals(0, empty.totalCount());
+  }
+
+  private static List<String> buildSourceData() {
+    return Arrays.asList("Adam", "Eve", null, "Apple", "Eve", "Apple", "Apple", "Bob");
+  }
+
+  private static List<String> values(List<FrequencyAnalyzer.Item> items) {
+    final List<String> values = new ArrayList<String>(items.size());
+    for (FrequencyAnalyzer.Item item : items) {
+      values.add(item.value());
+    }
+    return values;
+  }
+
+  private static List<Integer> frequencies(List<FrequencyAnalyzer.Item> items) {
+    final List<Integer> frequencies = new ArrayList<Integer>(items.size());
+    for (FrequencyAnalyzer.Item item : items) {
+      frequencies.add(item.frequency());
+    }
+    return frequencies;
+  }
+}
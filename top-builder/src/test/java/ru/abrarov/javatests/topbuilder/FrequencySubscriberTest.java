@@ -0,0 +1,195 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * FrequencySubscriber and FrequencyBatchSubscriber test.
+ *
+ * @see FrequencySubscriber
+ * @see FrequencyBatchSubscriber
+ */
+public class FrequencySubscriberTest {
+
+  private static final int LIST_SIZE = 10;
+
+  /**
+   * Executor delivering snapshots in the publishing thread, so snapshots are received synchronously.
+   */
+  private static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  /**
+   * The final snapshot of values pushed by asynchronous publisher is the same as the top list built by
+   * NaiveFrequencyAnalyzer.
+   */
+  @Test
+  public void testFinalSnapshotMatchesNaiveAnalyzer() throws InterruptedException {
+    final List<String> values = buildValues();
+    final FrequencySubscriber subscriber = new FrequencySubscriber(LIST_SIZE, 1000, 0);
+    final SnapshotCollector collector = new SnapshotCollector();
+    subscriber.snapshots().subscribe(collector);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final SubmissionPublisher<String> publisher = new SubmissionPublisher<String>(executor, 64);
+      publisher.subscribe(subscriber);
+      for (String value : values) {
+        publisher.submit(value);
+      }
+      publisher.close();
+      assertTrue(collector.completed.await(30, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(toStrings(new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(), LIST_SIZE)),
+        toStrings(collector.lastSnapshot()));
+  }
+
+  /**
+   * Subscriber never requests more than the request size ahead of the received values.
+   */
+  @Test
+  public void testBackpressure() {
+    final int requestSize = 8;
+    final RecordingSubscription subscription = new RecordingSubscription();
+    final FrequencySubscriber subscriber = new FrequencySubscriber(LIST_SIZE, requestSize, 0, 0, DIRECT_EXECUTOR);
+    subscriber.onSubscribe(subscription);
+    assertEquals(requestSize, subscription.requested);
+    for (int i = 0; i < 1000; ++i) {
+      assertTrue(subscription.requested > i);
+      subscriber.onNext("Value" + i % 3);
+      assertTrue(subscription.requested - (i + 1) <= requestSize);
+    }
+    final RecordingSubscription second = new RecordingSubscription();
+    subscriber.onSubscribe(second);
+    assertTrue(second.cancelled);
+  }
+
+  @Test
+  public void testSnapshotsByValueCount() {
+    final FrequencySubscriber subscriber = new FrequencySubscriber(2, 4, 3, 0, DIRECT_EXECUTOR);
+    final SnapshotCollector collector = new SnapshotCollector();
+    subscriber.snapshots().subscribe(collector);
+    subscriber.onSubscribe(new RecordingSubscription());
+    for (String value : Arrays.asList("a", "b", "a", "c", "c", "c", "d")) {
+      subscriber.onNext(value);
+    }
+    subscriber.onComplete();
+    assertEquals(Arrays.asList(Arrays.asList("a=2", "b=1"), Arrays.asList("c=3", "a=2"),
+        Arrays.asList("c=3", "a=2")), collector.snapshotStrings());
+    assertEquals(0, collector.completed.getCount());
+  }
+
+  @Test
+  public void testBatchSubscriber() {
+    final FrequencyBatchSubscriber subscriber = new FrequencyBatchSubscriber(LIST_SIZE, 2, 4, 0, DIRECT_EXECUTOR);
+    final SnapshotCollector collector = new SnapshotCollector();
+    subscriber.snapshots().subscribe(collector);
+    final RecordingSubscription subscription = new RecordingSubscription();
+    subscriber.onSubscribe(subscription);
+    subscriber.onNext(Arrays.asList("a", "b", null));
+    subscriber.onNext(Collections.<String>emptyList());
+    subscriber.onNext(Arrays.asList("a", null, "a"));
+    subscriber.onComplete();
+    assertEquals(5, subscription.requested);
+    assertEquals(Arrays.asList(Arrays.asList("a=3", "null=2", "b=1"), Arrays.asList("a=3", "null=2", "b=1")),
+        collector.snapshotStrings());
+  }
+
+  @Test
+  public void testErrorClosesSnapshots() {
+    final FrequencySubscriber subscriber = new FrequencySubscriber(LIST_SIZE, 4, 0, 0, DIRECT_EXECUTOR);
+    final SnapshotCollector collector = new SnapshotCollector();
+    subscriber.snapshots().subscribe(collector);
+    subscriber.onSubscribe(new RecordingSubscription());
+    final IllegalStateException error = new IllegalStateException("Test");
+    subscriber.onError(error);
+    assertEquals(error, collector.error);
+    assertEquals(0, collector.snapshots.size());
+  }
+
+  private static List<String> buildValues() {
+    final Random random = new Random(1);
+    final List<String> values = new ArrayList<String>(20000);
+    for (int i = 0; i < 20000; ++i) {
+      values.add("Value" + random.nextInt(1 + random.nextInt(1000)));
+    }
+    return values;
+  }
+
+  private static class RecordingSubscription implements Flow.Subscription {
+
+    private long requested;
+    private boolean cancelled;
+
+    @Override
+    public void request(long n) {
+      requested += n;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static class SnapshotCollector implements Flow.Subscriber<List<FrequencyAnalyzer.Item>> {
+
+    private final List<List<FrequencyAnalyzer.Item>> snapshots =
+        Collections.synchronizedList(new ArrayList<List<FrequencyAnalyzer.Item>>());
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<FrequencyAnalyzer.Item> snapshot) {
+      snapshots.add(snapshot);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed.countDown();
+    }
+
+    List<FrequencyAnalyzer.Item> lastSnapshot() {
+      return snapshots.get(snapshots.size() - 1);
+    }
+
+    List<List<String>> snapshotStrings() {
+      final List<List<String>> strings = new ArrayList<List<String>>();
+      for (List<FrequencyAnalyzer.Item> snapshot : snapshots) {
+        strings.add(toStrings(snapshot));
+      }
+      return strings;
+    }
+  }
+}
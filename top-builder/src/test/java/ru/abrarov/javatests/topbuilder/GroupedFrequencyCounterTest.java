@@ -0,0 +1,92 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * GroupedFrequencyCounter test.
+ *
+ * @see GroupedFrequencyCounter
+ */
+public class GroupedFrequencyCounterTest {
+
+  /**
+   * Top lists of small (inline) and large (promoted) groups are the same as built by exact analyzer for each group.
+   */
+  @Test
+  public void testTopListsMatchNaiveAnalyzer() {
+    final int listSize = 10;
+    final Random random = new Random(1);
+    final GroupedFrequencyCounter counter = new GroupedFrequencyCounter();
+    final List<String> groups = new ArrayList<String>();
+    final Map<String, List<String>> valuesByGroup = new HashMap<String, List<String>>();
+    for (int i = 0; i < 100000; ++i) {
+      final int groupIndex = random.nextInt(1 + random.nextInt(3000));
+      final String group = groupIndex == 0 ? null : "Group" + groupIndex;
+      // Groups with small indices have more unique values and are promoted
+      final int valueIndex = random.nextInt(1 + random.nextInt(1 + 1000 / (1 + groupIndex)));
+      final String value = valueIndex == 0 ? null : "Value" + valueIndex;
+      counter.add(group, value);
+      groups.add(group);
+      List<String> values = valuesByGroup.get(group);
+      if (values == null) {
+        values = new ArrayList<String>();
+        valuesByGroup.put(group, values);
+      }
+      values.add(value);
+    }
+    assertEquals(groups.size(), counter.valueCount());
+    assertEquals(valuesByGroup.size(), counter.groupCount());
+    for (Map.Entry<String, List<String>> entry : valuesByGroup.entrySet()) {
+      final BoundedTopList top = counter.top(entry.getKey(), listSize);
+      assertTrue(top.isExact());
+      assertEquals(entry.getKey(), toStrings(buildTopFrequentList(entry.getValue(), listSize)),
+          toStrings(top.items()));
+    }
+    assertEquals(toStrings(buildTopFrequentList(groups, 20)), toStrings(counter.topGroups(20)));
+    assertTrue(counter.top("Missing", listSize).items().isEmpty());
+  }
+
+  /**
+   * Groups having more unique values than the limit are counted approximately within error bounds.
+   */
+  @Test
+  public void testLimitedGroupsAreBounded() {
+    final int listSize = 5;
+    final Random random = new Random(1);
+    final GroupedFrequencyCounter counter = new GroupedFrequencyCounter(64);
+    final List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 50000; ++i) {
+      final String value = random.nextInt(3) == 0 ? "Hot" + random.nextInt(listSize) : "Value" + random.nextInt(5000);
+      counter.add("Group", value);
+      counter.add("Small" + random.nextInt(100), value);
+      values.add(value);
+    }
+    final BoundedTopList top = counter.top("Group", listSize);
+    assertFalse(top.isExact());
+    final Map<String, Integer> exact = new HashMap<String, Integer>();
+    for (FrequencyAnalyzer.Item item : buildTopFrequentList(values, Integer.MAX_VALUE)) {
+      exact.put(item.value(), item.frequency());
+    }
+    for (ApproximateItem item : top.items()) {
+      assertTrue(item.value(), item.value().startsWith("Hot"));
+      assertTrue(item.value(), item.lowerBound() <= exact.get(item.value()));
+      assertTrue(item.value(), item.upperBound() >= exact.get(item.value()));
+    }
+    assertEquals(listSize, top.items().size());
+  }
+
+  private static List<FrequencyAnalyzer.Item> buildTopFrequentList(List<String> values, int size) {
+    return new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(), size);
+  }
+}
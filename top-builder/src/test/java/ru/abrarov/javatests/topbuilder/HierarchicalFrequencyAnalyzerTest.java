@@ -0,0 +1,100 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * HierarchicalFrequencyAnalyzer test.
+ *
+ * @see HierarchicalFrequencyAnalyzer
+ */
+public class HierarchicalFrequencyAnalyzerTest {
+
+  private static final int LIST_SIZE = 10;
+
+  @Test
+  public void testDelimiterLevels() {
+    final List<String> values = Arrays.asList("a/b/c", "a/b/d", "a/e", "f", "a/b/c", null, "", "/x");
+    final List<BoundedTopList> top = HierarchicalFrequencyAnalyzer.byDelimiter('/', 1, 2)
+        .analyze(values.iterator(), LIST_SIZE);
+    assertEquals(2, top.size());
+    assertEquals(Arrays.asList("a=4", "=2", "null=1", "f=1"), toStrings(top.get(0).items()));
+    assertEquals(Arrays.asList("a/b=3", "null=1", "=1", "/x=1", "a/e=1", "f=1"), toStrings(top.get(1).items()));
+  }
+
+  /**
+   * Each level is the same as the top list of the truncated values built by NaiveFrequencyAnalyzer.
+   */
+  @Test
+  public void testPrefixLengthsMatchNaiveAnalyzer() {
+    final List<String> values = buildHierarchicalValues();
+    final int[] lengths = {1, 2, 5, 100};
+    final List<BoundedTopList> top = HierarchicalFrequencyAnalyzer.byPrefixLengths(lengths)
+        .analyze(values.iterator(), LIST_SIZE);
+    for (int i = 0; i < lengths.length; ++i) {
+      final List<String> prefixes = new ArrayList<String>(values.size());
+      for (String value : values) {
+        prefixes.add(value.substring(0, Math.min(lengths[i], value.length())));
+      }
+      assertTrue(top.get(i).isExact());
+      assertEquals(toStrings(new NaiveFrequencyAnalyzer().buildTopFrequentList(prefixes.iterator(), LIST_SIZE)),
+          toStrings(top.get(i).items()));
+    }
+  }
+
+  /**
+   * True frequency of each item of each level is within its bounds and each prefix missing in the top list of a level
+   * is not more frequent than the upper bound of the last item.
+   */
+  @Test
+  public void testApproximateDelimiterLevels() {
+    final List<String> values = buildHierarchicalValues();
+    final int[] levels = {1, 2, 3};
+    final List<BoundedTopList> top = HierarchicalFrequencyAnalyzer.byDelimiter('/', levels).approximate(64)
+        .analyze(values.iterator(), LIST_SIZE);
+    for (int i = 0; i < levels.length; ++i) {
+      final List<String> prefixes = new ArrayList<String>(values.size());
+      for (String value : values) {
+        final String[] parts = value.split("/");
+        final StringBuilder prefix = new StringBuilder(parts[0]);
+        for (int j = 1; j < Math.min(levels[i], parts.length); ++j) {
+          prefix.append('/').append(parts[j]);
+        }
+        prefixes.add(prefix.toString());
+      }
+      final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(prefixes.iterator());
+      final BoundedTopList levelTop = top.get(i);
+      assertTrue(levelTop.maxError() <= values.size() / 64);
+      final List<String> topValues = new ArrayList<String>();
+      for (ApproximateItem item : levelTop.items()) {
+        final int frequency = distribution.frequencyOf(item.value());
+        assertTrue(item + " vs " + frequency, item.lowerBound() <= frequency && frequency <= item.upperBound());
+        topValues.add(item.value());
+      }
+      final int lastUpperBound = levelTop.items().get(levelTop.items().size() - 1).upperBound();
+      for (FrequencyAnalyzer.Item item : distribution.valuesWithFrequencyAtLeast(lastUpperBound + 1)) {
+        assertTrue(item.value() + " is missing", topValues.contains(item.value()));
+      }
+    }
+    assertTrue(top.get(0).isExact());
+    assertTrue(!top.get(2).isExact());
+  }
+
+  private static List<String> buildHierarchicalValues() {
+    final Random random = new Random(1);
+    final List<String> values = new ArrayList<String>(50000);
+    for (int i = 0; i < 50000; ++i) {
+      values.add("tenant" + random.nextInt(1 + random.nextInt(20)) + "/service" + random.nextInt(1 + random.nextInt(50))
+          + "/op" + random.nextInt(1 + random.nextInt(2000)));
+    }
+    return values;
+  }
+}
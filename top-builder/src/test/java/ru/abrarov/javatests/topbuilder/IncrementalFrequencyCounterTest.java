@@ -0,0 +1,43 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * IncrementalFrequencyCounter test.
+ *
+ * @see IncrementalFrequencyCounter
+ */
+public class IncrementalFrequencyCounterTest {
+
+  /**
+   * The top list refreshed after each batch of values is the same as the top list of all values counted so far.
+   */
+  @Test
+  public void testRefreshMatchesNaiveAnalyzer() {
+    final int listSize = 10;
+    final Random random = new Random(1);
+    final IncrementalFrequencyCounter counter = new IncrementalFrequencyCounter(listSize);
+    final List<String> allValues = new ArrayList<String>();
+    for (int batch = 0; batch < 200; ++batch) {
+      // Small batches are refreshed incrementally, large ones from all values
+      final int batchSize = batch % 20 == 0 ? 5000 : random.nextInt(50);
+      final List<String> values = new ArrayList<String>(batchSize);
+      for (int i = 0; i < batchSize; ++i) {
+        final int index = random.nextInt(1 + random.nextInt(2000));
+        values.add(index == 0 ? null : "Value" + index);
+      }
+      counter.addAll(values);
+      allValues.addAll(values);
+      assertEquals(allValues.size(), counter.valueCount());
+      assertEquals(toStrings(new NaiveFrequencyAnalyzer().buildTopFrequentList(allValues.iterator(), listSize)),
+          toStrings(counter.topFrequentList()));
+    }
+  }
+}
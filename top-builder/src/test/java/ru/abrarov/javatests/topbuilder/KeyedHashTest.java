@@ -0,0 +1,55 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KeyedHash test.
+ *
+ * @see KeyedHash
+ */
+public class KeyedHashTest {
+
+  private static final long K0 = 0x0123456789abcdefL;
+  private static final long K1 = 0xfedcba9876543210L;
+
+  /**
+   * Strings with equal hash codes of lengths shorter, equal and longer than a word pair get distinct keyed hashes and
+   * the high bits used by tables are spread.
+   */
+  @Test
+  public void testCollidingKeys() {
+    for (int blocks = 1; blocks <= 12; ++blocks) {
+      final List<String> keys = StringCountTableTest.collidingKeys(blocks);
+      final Set<Integer> hashes = new HashSet<Integer>();
+      final Set<Integer> highBits = new HashSet<Integer>();
+      for (String key : keys) {
+        final int hash = KeyedHash.hash(K0, K1, key, key.length());
+        hashes.add(hash);
+        highBits.add(hash >>> 20);
+      }
+      assertEquals("blocks " + blocks, keys.size(), hashes.size());
+      assertTrue("blocks " + blocks, highBits.size() >= Math.min(keys.size(), 4096) / 2);
+    }
+  }
+
+  /**
+   * Strings of zero characters differing by length only get distinct keyed hashes.
+   */
+  @Test
+  public void testTrailingZeroCharacters() {
+    final Set<Integer> hashes = new HashSet<Integer>();
+    final StringBuilder value = new StringBuilder();
+    for (int length = 0; length <= 40; ++length) {
+      hashes.add(KeyedHash.hash(K0, K1, value.toString(), length));
+      value.append('\0');
+    }
+    assertEquals(41, hashes.size());
+  }
+}
@@ -0,0 +1,14 @@
+package ru.abrarov.javatests.topbuilder;
+
+/**
+ * OpenAddressingFrequencyAnalyzer test.
+ *
+ * @see OpenAddressingFrequencyAnalyzer
+ */
+public class OpenAddressingFrequencyAnalyzerTest extends AbstractFrequencyAnalyzerTest {
+
+  @Override
+  protected FrequencyAnalyzer createFrequencyAnalyzer() {
+    return new OpenAddressingFrequencyAnalyzer();
+  }
+}
@@ -0,0 +1,109 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SamplingFrequencyAnalyzer test. The common tests sample all values, so they are counted exactly.
+ *
+ * @see SamplingFrequencyAnalyzer
+ */
+public class SamplingFrequencyAnalyzerTest extends AbstractFrequencyAnalyzerTest {
+
+  private static final int LIST_SIZE = 10;
+
+  @Override
+  protected FrequencyAnalyzer createFrequencyAnalyzer() {
+    return new SamplingFrequencyAnalyzer(1);
+  }
+
+  @Test
+  public void testNormalQuantile() {
+    assertEquals(1.96, SamplingFrequencyAnalyzer.normalQuantile(0.975), 1e-3);
+    assertEquals(2.576, SamplingFrequencyAnalyzer.normalQuantile(0.995), 1e-3);
+  }
+
+  @Test
+  public void testBernoulliSample() {
+    testSample(SamplingFrequencyAnalyzer.Sampling.BERNOULLI);
+  }
+
+  @Test
+  public void testSystematicSample() {
+    testSample(SamplingFrequencyAnalyzer.Sampling.SYSTEMATIC);
+  }
+
+  /**
+   * Verification counts values of the top list exactly.
+   */
+  @Test
+  public void testVerify() {
+    final List<String> values = TestValues.buildSkewedValues(200000, 1000);
+    final SampledTopList top = new SamplingFrequencyAnalyzer(0.01, SamplingFrequencyAnalyzer.Sampling.BERNOULLI,
+        SamplingFrequencyAnalyzer.DEFAULT_CONFIDENCE, 1).analyze(values.iterator(), LIST_SIZE);
+    final List<FrequencyAnalyzer.Item> verified = SamplingFrequencyAnalyzer.verify(values.iterator(), top);
+    assertEquals(top.items().size(), verified.size());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    for (int i = 0; i < verified.size(); ++i) {
+      final FrequencyAnalyzer.Item item = verified.get(i);
+      assertEquals(distribution.frequencyOf(item.value()), item.frequency());
+      assertTrue(i == 0 || Items.FREQUENCY_ORDER.compare(verified.get(i - 1), item) < 0);
+    }
+  }
+
+  /**
+   * Values of close frequencies cannot be separated by a small sample.
+   */
+  @Test
+  public void testNotSeparated() {
+    final List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 10000; ++i) {
+      values.add("Value" + i % 20);
+    }
+    final SampledTopList top = new SamplingFrequencyAnalyzer(0.05, SamplingFrequencyAnalyzer.Sampling.BERNOULLI,
+        SamplingFrequencyAnalyzer.DEFAULT_CONFIDENCE, 1).analyze(values.iterator(), LIST_SIZE);
+    assertEquals(LIST_SIZE, top.items().size());
+    assertTrue(!top.isSeparated());
+  }
+
+  /**
+   * Sample is about the rate of the values, frequencies of the top list are within their confidence intervals (with
+   * rare exceptions at 99% confidence), and the top list is separated from the rest, so it has the exact top values.
+   */
+  private static void testSample(SamplingFrequencyAnalyzer.Sampling sampling) {
+    final List<String> values = TestValues.buildSkewedValues(200000, 1000);
+    final double rate = 0.1;
+    // Frequencies of the top values differ by at least 25%
+    final int listSize = 3;
+    final SampledTopList top = new SamplingFrequencyAnalyzer(rate, sampling, 0.99, 1).analyze(values.iterator(),
+        listSize);
+    assertEquals(values.size(), top.valueCount());
+    assertEquals(rate * values.size(), top.sampledValueCount(), 0.05 * rate * values.size());
+    assertEquals(listSize, top.items().size());
+    assertTrue(top.isSeparated());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    final List<FrequencyAnalyzer.Item> exactTop = new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(),
+        listSize);
+    final List<String> exactTopValues = new ArrayList<String>();
+    for (FrequencyAnalyzer.Item item : exactTop) {
+      exactTopValues.add(item.value());
+    }
+    int misses = 0;
+    for (int i = 0; i < listSize; ++i) {
+      final EstimatedItem item = top.items().get(i);
+      final int frequency = distribution.frequencyOf(item.value());
+      assertTrue(item.lowerBound() >= item.sampledFrequency());
+      if (frequency < item.lowerBound() || frequency > item.upperBound()) {
+        ++misses;
+      }
+      // Ranks of close frequencies may swap, but the separated list has the same values as the exact one
+      assertTrue(exactTopValues.contains(item.value()));
+    }
+    assertTrue(misses <= 1);
+  }
+}
@@ -0,0 +1,127 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * ShardedGroupedFrequencyCounter test.
+ *
+ * @see ShardedGroupedFrequencyCounter
+ */
+public class ShardedGroupedFrequencyCounterTest {
+
+  /**
+   * Batches counted in parallel by shards give the same results as one counter.
+   */
+  @Test
+  public void testMatchesGroupedCounter() throws InterruptedException {
+    final int listSize = 10;
+    final Random random = new Random(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final ShardedGroupedFrequencyCounter sharded = new ShardedGroupedFrequencyCounter(4, 0, executor);
+      final GroupedFrequencyCounter expected = new GroupedFrequencyCounter();
+      final List<String> allGroups = new ArrayList<String>();
+      for (int batch = 0; batch < 20; ++batch) {
+        final List<String> groups = new ArrayList<String>();
+        final List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 5000; ++i) {
+          final int groupIndex = random.nextInt(1 + random.nextInt(1000));
+          final String group = groupIndex == 0 ? null : "Group" + groupIndex;
+          final String value = "Value" + random.nextInt(1 + random.nextInt(100));
+          groups.add(group);
+          values.add(value);
+          expected.add(group, value);
+        }
+        sharded.addAll(groups, values);
+        allGroups.addAll(groups);
+      }
+      assertEquals(expected.valueCount(), sharded.valueCount());
+      assertEquals(expected.groupCount(), sharded.groupCount());
+      for (String group : allGroups) {
+        assertEquals(toStrings(expected.top(group, listSize).items()),
+            toStrings(sharded.top(group, listSize).items()));
+      }
+      assertEquals(toStrings(expected.topGroups(50)),
+          toStrings(sharded.topGroups(50)));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Failure of a task is rethrown after the other tasks are completed, so the counter isn't changed after return.
+   */
+  @Test
+  public void testFailureAwaitsOtherTasks() throws InterruptedException {
+    final int size = 4000;
+    final AtomicInteger readValues = new AtomicInteger();
+    final List<String> groups = new ArrayList<String>();
+    for (int i = 0; i < size; ++i) {
+      groups.add("Group" + i);
+    }
+    final List<String> values = new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        if (index == 0) {
+          throw new IllegalStateException("Failed value");
+        }
+        readValues.incrementAndGet();
+        return "Value";
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final ShardedGroupedFrequencyCounter sharded = new ShardedGroupedFrequencyCounter(4, 0, executor);
+      try {
+        sharded.addAll(groups, values);
+        fail("Failure of the task isn't rethrown");
+      } catch (IllegalStateException e) {
+        assertEquals("Failed value", e.getMessage());
+      }
+      final int readValuesOnReturn = readValues.get();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(readValuesOnReturn, readValues.get());
+      assertEquals(sharded.valueCount(), readValuesOnReturn);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Groups having the same hash code are spread among shards.
+   */
+  @Test
+  public void testCollidingGroupsAreSpread() {
+    final int shardCount = 4;
+    final ShardedGroupedFrequencyCounter sharded = new ShardedGroupedFrequencyCounter(shardCount, 0, null);
+    final List<String> groups = StringCountTableTest.collidingKeys(10);
+    final int[] shardSizes = new int[shardCount];
+    for (String group : groups) {
+      ++shardSizes[sharded.shard(group)];
+    }
+    for (int shardSize : shardSizes) {
+      assertTrue(Arrays.toString(shardSizes), shardSize >= groups.size() / shardCount / 2);
+    }
+  }
+}
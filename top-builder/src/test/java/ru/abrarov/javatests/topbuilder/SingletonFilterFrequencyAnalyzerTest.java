@@ -0,0 +1,78 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * SingletonFilterFrequencyAnalyzer test.
+ *
+ * @see SingletonFilterFrequencyAnalyzer
+ */
+public class SingletonFilterFrequencyAnalyzerTest {
+
+  /**
+   * Mostly unique values (like the default output of polygon_generator) with a few repeated ones.
+   */
+  @Test
+  public void testMostlyUniqueValuesMatchNaiveAnalyzer() {
+    final List<String> values = buildMostlyUniqueValues(1000);
+    for (int size : new int[]{1, 10, 100, 5000}) {
+      assertEquals(toStrings(new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(), size)),
+          toStrings(new SingletonFilterFrequencyAnalyzer(values.size()).buildTopFrequentList(values, size)));
+    }
+  }
+
+  /**
+   * Too small filter makes many false positives, but the result is still exact.
+   */
+  @Test
+  public void testUndersizedFilter() {
+    final List<String> values = buildMostlyUniqueValues(1000);
+    assertEquals(toStrings(new NaiveFrequencyAnalyzer().buildTopFrequentList(values.iterator(), 100)),
+        toStrings(new SingletonFilterFrequencyAnalyzer(10).buildTopFrequentList(values, 100)));
+  }
+
+  /**
+   * Values met once are in the top list when there are not enough repeated values, null goes first.
+   */
+  @Test
+  public void testSingletons() {
+    final List<String> values = Arrays.asList("d", "b", "a", "b", null, "c", "a", "b", "e");
+    final SingletonFilterFrequencyAnalyzer analyzer = new SingletonFilterFrequencyAnalyzer(values.size());
+    assertEquals(Arrays.asList("b=3", "a=2", "null=1", "c=1"), toStrings(analyzer.buildTopFrequentList(values, 4)));
+  }
+
+  /**
+   * One pass undercounts by at most 1 and misses the values met once only.
+   */
+  @Test
+  public void testOnePass() {
+    final List<String> values = buildMostlyUniqueValues(1000);
+    final BoundedTopList top = new SingletonFilterFrequencyAnalyzer(values.size()).analyze(values.iterator(), 10);
+    assertEquals(1, top.maxError());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    assertEquals(10, top.items().size());
+    for (ApproximateItem item : top.items()) {
+      final int frequency = distribution.frequencyOf(item.value());
+      assertTrue(item + " vs " + frequency, item.lowerBound() <= frequency && frequency <= item.upperBound());
+    }
+  }
+
+  private static List<String> buildMostlyUniqueValues(int repeatedValueCount) {
+    final Random random = new Random(1);
+    final List<String> values = new ArrayList<String>(100000);
+    for (int i = 0; i < 100000; ++i) {
+      values.add(random.nextInt(4) == 0 ? "Repeated" + random.nextInt(1 + random.nextInt(repeatedValueCount))
+          : "Unique" + i);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,108 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StringCountTable test.
+ *
+ * @see StringCountTable
+ */
+public class StringCountTableTest {
+
+  /**
+   * Subtraction of the minimum count removes keys having the minimum count and keeps the other keys reachable.
+   */
+  @Test
+  public void testSubtractMinimum() {
+    final Random random = new Random(1);
+    final StringCountTable table = new StringCountTable();
+    final Map<String, Integer> expected = new HashMap<String, Integer>();
+    for (int i = 0; i < 5000; ++i) {
+      // Keys with colliding slots are likely
+      final String key = random.nextInt(10) == 0 ? null : "Key" + random.nextInt(1000);
+      table.add(key);
+      final Integer count = expected.get(key);
+      expected.put(key, count == null ? 1 : count + 1);
+    }
+    int minimum = Integer.MAX_VALUE;
+    for (int count : expected.values()) {
+      minimum = Math.min(minimum, count);
+    }
+    assertEquals(minimum, table.subtractMinimum());
+    int size = 0;
+    for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+      final int count = entry.getValue() - minimum;
+      assertEquals(entry.getKey(), count, table.get(entry.getKey()));
+      if (count > 0) {
+        ++size;
+      }
+    }
+    assertEquals(size, table.size());
+    assertEquals(false, table.increment("Missing"));
+    assertEquals(true, table.increment(table.top(1).get(0).value()));
+  }
+
+  /**
+   * Keys with equal hash codes cause rehashing by keyed hash and are still counted correctly.
+   */
+  @Test
+  public void testCollidingKeys() {
+    final List<String> keys = collidingKeys(12);
+    final StringCountTable table = new StringCountTable();
+    for (int i = 0; i < keys.size(); ++i) {
+      table.add(keys.get(i), i % 7 + 1);
+    }
+    assertTrue(table.isKeyed());
+    assertEquals(keys.size(), table.size());
+    for (int i = 0; i < keys.size(); ++i) {
+      assertEquals(keys.get(i), i % 7 + 1, table.get(keys.get(i)));
+      assertTrue(table.increment(keys.get(i)));
+    }
+    assertFalse(table.increment(keys.get(0) + "BB"));
+    final String prefix = keys.get(0) + keys.get(1);
+    table.addPrefix(prefix + "Suffix", prefix.length(), prefix.hashCode());
+    assertTrue(table.incrementPrefix(prefix + "Other", prefix.length(), prefix.hashCode()));
+    assertEquals(2, table.get(prefix));
+  }
+
+  /**
+   * Usual keys are hashed by String.hashCode.
+   */
+  @Test
+  public void testUsualKeys() {
+    final StringCountTable table = new StringCountTable();
+    for (int i = 0; i < 200000; ++i) {
+      table.add("Key" + i);
+    }
+    assertFalse(table.isKeyed());
+    assertEquals(200000, table.size());
+  }
+
+  /**
+   * Builds keys having the same hash code: concatenations of "Aa" and "BB".
+   *
+   * @param blocks Number of blocks in each key.
+   * @return 2^blocks keys.
+   */
+  static List<String> collidingKeys(int blocks) {
+    final List<String> keys = new ArrayList<String>(1 << blocks);
+    for (int i = 0; i < 1 << blocks; ++i) {
+      final StringBuilder key = new StringBuilder(2 * blocks);
+      for (int j = 0; j < blocks; ++j) {
+        key.append((i >>> j & 1) == 0 ? "Aa" : "BB");
+      }
+      keys.add(key.toString());
+    }
+    return keys;
+  }
+}
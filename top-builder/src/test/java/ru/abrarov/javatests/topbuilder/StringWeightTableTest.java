@@ -0,0 +1,57 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StringWeightTable test.
+ *
+ * @see StringWeightTable
+ */
+public class StringWeightTableTest {
+
+  /**
+   * Quantiles are the same as read from the sorted weights, including repeated weights.
+   */
+  @Test
+  public void testQuantile() {
+    final Random random = new Random(1);
+    final StringWeightTable table = new StringWeightTable();
+    final int size = 1001;
+    final double[] weights = new double[size];
+    for (int i = 0; i < size; ++i) {
+      weights[i] = 1 + random.nextInt(100);
+      table.add(i == 0 ? null : "Key" + i, weights[i]);
+    }
+    Arrays.sort(weights);
+    for (double fraction : new double[]{0, 0.1, 0.25, 0.5, 0.9, 0.999, 1}) {
+      assertEquals("fraction " + fraction, weights[Math.min((int) (fraction * size), size - 1)],
+          table.quantile(fraction), 0);
+    }
+    assertEquals(0, new StringWeightTable().quantile(0.5), 0);
+  }
+
+  /**
+   * Keys with equal hash codes cause rehashing by keyed hash and their weights are still found.
+   */
+  @Test
+  public void testCollidingKeys() {
+    final List<String> keys = StringCountTableTest.collidingKeys(12);
+    final StringWeightTable table = new StringWeightTable();
+    for (int i = 0; i < keys.size(); ++i) {
+      table.add(keys.get(i), i + 1);
+    }
+    assertTrue(table.isKeyed());
+    assertEquals(keys.size(), table.size());
+    for (int i = 0; i < keys.size(); ++i) {
+      assertTrue(table.increment(keys.get(i), 1));
+      assertEquals(keys.get(i), i + 2, table.get(keys.get(i)), 0);
+    }
+  }
+}
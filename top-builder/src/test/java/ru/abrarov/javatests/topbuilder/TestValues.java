@@ -0,0 +1,45 @@
+package ru.abrarov.javatests.topbuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Helpers shared by tests: building of test values and comparable representation of top lists.
+ */
+final class TestValues {
+
+  private TestValues() {
+    throw new AssertionError("Utility classes cannot be instantiated");
+  }
+
+  /**
+   * Builds values with skewed (log-uniform) distribution: value i is met about 1 / i times as often as value 1.
+   *
+   * @param count    Number of values to build.
+   * @param maxIndex The maximum index of a value (exclusive). Must be > 1.
+   * @return Values "Value1", "Value2", etc. built with fixed seed.
+   */
+  static List<String> buildSkewedValues(int count, int maxIndex) {
+    final Random random = new Random(1);
+    final List<String> values = new ArrayList<String>(count);
+    for (int i = 0; i < count; ++i) {
+      values.add("Value" + (int) Math.floor(Math.pow(maxIndex, random.nextDouble())));
+    }
+    return values;
+  }
+
+  /**
+   * Converts items to strings to compare lists of items including the order and frequencies.
+   *
+   * @param items Items to convert.
+   * @return Strings "value=frequency" in the order of items.
+   */
+  static List<String> toStrings(List<? extends FrequencyAnalyzer.Item> items) {
+    final List<String> strings = new ArrayList<String>(items.size());
+    for (FrequencyAnalyzer.Item item : items) {
+      strings.add(item.value() + "=" + item.frequency());
+    }
+    return strings;
+  }
+}
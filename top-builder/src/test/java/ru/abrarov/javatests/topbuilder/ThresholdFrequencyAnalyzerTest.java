@@ -0,0 +1,63 @@
+package ru.abrarov.javatests.topbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ru.abrarov.javatests.topbuilder.TestValues.toStrings;
+
+/**
+ * ThresholdFrequencyAnalyzer test.
+ *
+ * @see ThresholdFrequencyAnalyzer
+ */
+public class ThresholdFrequencyAnalyzerTest {
+
+  /**
+   * Values fitting the counters are counted exactly.
+   */
+  @Test
+  public void testExact() {
+    final List<String> values = Arrays.asList("a", "b", "a", null, "c", "a", "b", null, "d", "e");
+    final ThresholdList list = new ThresholdFrequencyAnalyzer(0.2, 0.1).analyze(values.iterator());
+    assertTrue(list.isExact());
+    assertEquals(10, list.valueCount());
+    assertEquals(2, list.threshold());
+    assertEquals(Arrays.asList("a=3", "null=2", "b=2"), toStrings(list.items()));
+  }
+
+  /**
+   * One pass has no false negatives and its false positives are bounded, the second pass is exact.
+   */
+  @Test
+  public void testApproximateAndVerify() {
+    final List<String> values = TestValues.buildSkewedValues(100000, 100000);
+    final double threshold = 0.01;
+    final double maxError = 0.005;
+    final ThresholdList list = new ThresholdFrequencyAnalyzer(threshold, maxError).analyze(values.iterator());
+    assertTrue(!list.isExact());
+    assertTrue(list.maxError() < maxError * values.size());
+    assertEquals((int) Math.ceil(threshold * values.size()), list.threshold());
+    final FrequencyDistribution distribution = new NaiveFrequencyAnalyzer().buildDistribution(values.iterator());
+    final List<String> candidates = new ArrayList<String>();
+    for (ApproximateItem item : list.items()) {
+      final int frequency = distribution.frequencyOf(item.value());
+      assertTrue(item + " vs " + frequency, item.lowerBound() <= frequency && frequency <= item.upperBound());
+      assertTrue(frequency >= list.threshold() - list.maxError());
+      candidates.add(item.value());
+    }
+    final List<String> expected = toStrings(distribution.valuesWithFrequencyAtLeast(list.threshold()));
+    assertTrue(!expected.isEmpty());
+    for (FrequencyAnalyzer.Item item : distribution.valuesWithFrequencyAtLeast(list.threshold())) {
+      assertTrue(item.value() + " is missing", candidates.contains(item.value()));
+    }
+
+    final ThresholdList verified = ThresholdFrequencyAnalyzer.verify(values.iterator(), list);
+    assertTrue(verified.isExact());
+    assertEquals(expected, toStrings(verified.items()));
+  }
+}
@@ -0,0 +1,120 @@
+package ru.abrarov.javatests.topbuilder.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DatasetGenerator test.
+ *
+ * @see DatasetGenerator
+ */
+public class DatasetGeneratorTest {
+
+  private static final int THREADS = 4;
+  private static final int MIN_LENGTH = 2;
+  private static final int MAX_LENGTH = 100;
+  /**
+   * Number of lines making several chunks.
+   */
+  private static final long LINE_COUNT = 5 * DatasetGenerator.CHUNK_SIZE / (MAX_LENGTH + 1) / 2;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Chunks are generated in parallel but the output is the same as of a single thread.
+   */
+  @Test
+  public void testOutputDoesNotDependOnThreads() throws IOException {
+    for (long uniqueValueCount : Arrays.asList(LINE_COUNT, LINE_COUNT / 4)) {
+      final DatasetGenerator generator = new DatasetGenerator(LINE_COUNT, uniqueValueCount, MIN_LENGTH, MAX_LENGTH, 1);
+      assertArrayEquals(generate(generator, 1), generate(generator, THREADS));
+    }
+  }
+
+  /**
+   * The output depends only on the parameters and the seed.
+   */
+  @Test
+  public void testOutputIsReproducibleFromSeed() throws IOException {
+    final byte[] data = generate(new DatasetGenerator(LINE_COUNT, LINE_COUNT, MIN_LENGTH, MAX_LENGTH, 1), THREADS);
+    assertArrayEquals(data,
+        generate(new DatasetGenerator(LINE_COUNT, LINE_COUNT, MIN_LENGTH, MAX_LENGTH, 1), THREADS));
+    assertFalse(Arrays.equals(data,
+        generate(new DatasetGenerator(LINE_COUNT, LINE_COUNT, MIN_LENGTH, MAX_LENGTH, 2), THREADS)));
+  }
+
+  /**
+   * Lines match the format and the number of unique values is limited.
+   */
+  @Test
+  public void testLinesMatchFormat() throws IOException {
+    final Pattern format = Pattern.compile("[a-zA-Z0-9]{" + MIN_LENGTH + "," + MAX_LENGTH + "}");
+    for (long uniqueValueCount : Arrays.asList(LINE_COUNT, LINE_COUNT / 4)) {
+      final byte[] data = generate(
+          new DatasetGenerator(LINE_COUNT, uniqueValueCount, MIN_LENGTH, MAX_LENGTH, 1), THREADS);
+      assertEquals('\n', data[data.length - 1]);
+      final List<String> lines = Arrays.asList(new String(data, 0, data.length - 1, StandardCharsets.US_ASCII)
+          .split("\n", -1));
+      assertEquals(LINE_COUNT, lines.size());
+      for (String line : lines) {
+        assertTrue(line, format.matcher(line).matches());
+      }
+      assertTrue(new HashSet<String>(lines).size() <= uniqueValueCount);
+    }
+    final byte[] fixedLength = generate(new DatasetGenerator(3, 3, 5, 5, 1), 1);
+    assertTrue(Pattern.compile("([a-zA-Z0-9]{5}\n){3}")
+        .matcher(new String(fixedLength, StandardCharsets.US_ASCII)).matches());
+    assertEquals(0, generate(new DatasetGenerator(0, 0, MIN_LENGTH, MAX_LENGTH, 1), 1).length);
+  }
+
+  /**
+   * Seeds of chunks differ for all seeds of files, streams and indices of chunks.
+   */
+  @Test
+  public void testChunkSeedsAreDistinct() {
+    final Set<Long> seeds = new HashSet<Long>();
+    int count = 0;
+    for (long seed = -1; seed <= 1; ++seed) {
+      for (long stream = 1; stream <= 2; ++stream) {
+        for (long index = 0; index < 1000; ++index) {
+          final long chunkSeed = DatasetGenerator.chunkSeed(seed, stream, index);
+          assertEquals(chunkSeed, DatasetGenerator.chunkSeed(seed, stream, index));
+          seeds.add(chunkSeed);
+          ++count;
+        }
+      }
+    }
+    assertEquals(count, seeds.size());
+  }
+
+  private byte[] generate(DatasetGenerator generator, int threads) throws IOException {
+    final File file = temporaryFolder.newFile();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final long size = generator.generate(file, executor, 2 * threads);
+      assertEquals(size, file.length());
+    } finally {
+      executor.shutdownNow();
+    }
+    return Files.readAllBytes(file.toPath());
+  }
+}
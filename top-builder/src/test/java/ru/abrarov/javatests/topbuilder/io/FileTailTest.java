@@ -0,0 +1,94 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FileTail test.
+ *
+ * @see FileTail
+ */
+public class FileTailTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Only appended lines are returned, the trailing line without terminator is returned when it's completed.
+   */
+  @Test
+  public void testAppend() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "log.txt");
+    final FileTail tail = new FileTail(file.toPath());
+    try {
+      assertEquals(Collections.<String>emptyList(), tail.poll());
+      append(file, "One\nTw");
+      assertEquals(Collections.singletonList("One"), tail.poll());
+      assertEquals(Collections.<String>emptyList(), tail.poll());
+      append(file, "o\r\n\nДва\n");
+      assertEquals(Arrays.asList("Two", "", "Два"), tail.poll());
+      assertEquals(file.length(), tail.offset());
+    } finally {
+      tail.close();
+    }
+  }
+
+  /**
+   * Truncated file is read from the beginning.
+   */
+  @Test
+  public void testTruncation() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "log.txt");
+    append(file, "One\nTwo\nThree");
+    final FileTail tail = new FileTail(file.toPath());
+    try {
+      assertEquals(Arrays.asList("One", "Two"), tail.poll());
+      new FileOutputStream(file).close();
+      append(file, "Four\n");
+      assertEquals(Arrays.asList("Three", "Four"), tail.poll());
+    } finally {
+      tail.close();
+    }
+  }
+
+  /**
+   * The rest of the renamed file is read before the new file.
+   */
+  @Test
+  public void testRotation() throws IOException {
+    final File file = new File(temporaryFolder.getRoot(), "log.txt");
+    append(file, "One\n");
+    final FileTail tail = new FileTail(file.toPath());
+    try {
+      assertEquals(Collections.singletonList("One"), tail.poll());
+      append(file, "Two\nThree");
+      assertTrue(file.renameTo(new File(temporaryFolder.getRoot(), "log.txt.1")));
+      append(file, "Four\nFive\nSix");
+      assertEquals(Arrays.asList("Two", "Three", "Four", "Five"), tail.poll());
+      append(file, "\n");
+      assertEquals(Collections.singletonList("Six"), tail.poll());
+    } finally {
+      tail.close();
+    }
+  }
+
+  private static void append(File file, String text) throws IOException {
+    final OutputStream output = new FileOutputStream(file, true);
+    try {
+      output.write(text.getBytes("UTF-8"));
+    } finally {
+      output.close();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package ru.abrarov.javatests.topbuilder.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * LineSources test.
+ *
+ * @see LineSources
+ * @see MultiMemberGzipOutputStream
+ */
+public class LineSourcesTest {
+
+  private static final int THREADS = 4;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ExecutorService executor;
+
+  @Before
+  public void init() {
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Small members split lines (including multi-byte characters and lines longer than a member) between members.
+   */
+  @Test
+  public void testMultiMemberGzipWithSmallMembers() throws IOException {
+    final List<String> lines = Arrays.asList("", "One", "Два", "", buildLongLine(300), "Three\r", "€€€",
+        "Last line without terminator");
+    final File file = temporaryFolder.newFile("small.gz");
+    writeMultiMemberGzip(file, lines, 7);
+    final List<String> expected = new ArrayList<String>(lines);
+    // '\r' of "\r\n" line terminator is removed
+    expected.set(5, "Three");
+    assertEquals(expected, readLines(file));
+  }
+
+  /**
+   * Multi-member file is large enough to be inflated in several parallel chunks.
+   */
+  @Test
+  public void testMultiMemberGzipWithManyChunks() throws IOException {
+    final List<String> lines = buildRandomLines(200000);
+    final File file = temporaryFolder.newFile("large.gz");
+    writeMultiMemberGzip(file, lines, MultiMemberGzipOutputStream.MAX_BLOCK_SIZE);
+    assertEquals(true, file.length() > 2 * ParallelGzipLineBatchSource.CHUNK_SIZE);
+    assertEquals(lines, readLines(file));
+  }
+
+  /**
+   * Multi-member file can be read by any gzip implementation supporting concatenated members.
+   */
+  @Test
+  public void testMultiMemberGzipIsCompatible() throws IOException {
+    final List<String> lines = buildRandomLines(10000);
+    final File file = temporaryFolder.newFile("compatible.gz");
+    writeMultiMemberGzip(file, lines, 1000);
+    final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), "UTF-8"));
+    try {
+      final List<String> actual = new ArrayList<String>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        actual.add(line);
+      }
+      assertEquals(lines, actual);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Plain gzip is read as a single stream.
+   */
+  @Test
+  public void testPlainGzip() throws IOException {
+    final List<String> lines = buildRandomLines(10000);
+    final File file = temporaryFolder.newFile("plain.gz");
+    write(new GZIPOutputStream(new FileOutputStream(file)), lines);
+    assertEquals(lines, readLines(file));
+  }
+
+  /**
+   * Plain text is read as is.
+   */
+  @Test
+  public void testPlainText() throws IOException {
+    final List<String> lines = buildRandomLines(10000);
+    final File file = temporaryFolder.newFile("plain.txt");
+    write(new FileOutputStream(file), lines);
+    assertEquals(lines, readLines(file));
+  }
+
+  /**
+   * Corrupted member is reported.
+   */
+  @Test(expected = IOException.class)
+  public void testCorruptedMultiMemberGzip() throws IOException {
+    final File file = temporaryFolder.newFile("corrupted.gz");
+    writeMultiMemberGzip(file, buildRandomLines(1000), 1000);
+    final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      // Damage CRC32 of the first member
+      // BSIZE of "BC" subfield
+      randomAccessFile.seek(GzipFormat.BC_HEADER_LENGTH - 2);
+      final int memberSize = (randomAccessFile.readUnsignedByte() | randomAccessFile.readUnsignedByte() << 8) + 1;
+      randomAccessFile.seek(memberSize - GzipFormat.TRAILER_LENGTH);
+      final int crcByte = randomAccessFile.read();
+      randomAccessFile.seek(memberSize - GzipFormat.TRAILER_LENGTH);
+      randomAccessFile.write(crcByte ^ 0xff);
+    } finally {
+      randomAccessFile.close();
+    }
+    readLines(file);
+  }
+
+  private List<String> readLines(File file) throws IOException {
+    final LineBatchSource source = LineSources.open(file, executor, THREADS);
+    try {
+      final List<String> lines = new ArrayList<String>();
+      List<String> batch;
+      while ((batch = source.nextBatch()) != null) {
+        assertEquals(false, batch.isEmpty());
+        lines.addAll(batch);
+      }
+      return lines;
+    } finally {
+      source.close();
+    }
+  }
+
+  private static void writeMultiMemberGzip(File file, List<String> lines, int blockSize) throws IOException {
+    write(new MultiMemberGzipOutputStream(new FileOutputStream(file), blockSize, Deflater.DEFAULT_COMPRESSION), lines);
+  }
+
+  private static void write(OutputStream stream, List<String> lines) throws IOException {
+    final Writer writer = new OutputStreamWriter(new BufferedOutputStream(stream), "UTF-8");
+    try {
+      for (int i = 0; i < lines.size(); ++i) {
+        writer.write(lines.get(i));
+        if (i < lines.size() - 1 || lines.get(i).isEmpty()) {
+          writer.write('\n');
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static String buildLongLine(int length) {
+    final StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; ++i) {
+      builder.append((char) ('a' + i % 26));
+    }
+    return builder.toString();
+  }
+
+  private static List<String> buildRandomLines(int count) {
+    final Random random = new Random(1);
+    final List<String> lines = new ArrayList<String>(count);
+    for (int i = 0; i < count; ++i) {
+      final char[] chars = new char[random.nextInt(40)];
+      for (int j = 0; j < chars.length; ++j) {
+        chars[j] = (char) ('!' + random.nextInt(90));
+      }
+      lines.add(new String(chars));
+    }
+    return lines;
+  }
+}